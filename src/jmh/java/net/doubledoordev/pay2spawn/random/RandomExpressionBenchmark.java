@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2014, DoubleDoorDevelopment
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ *
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ *  Neither the name of the project nor the names of its
+ *   contributors may be used to endorse or promote products derived from
+ *   this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.doubledoordev.pay2spawn.random;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import cpw.mods.fml.common.registry.FMLControlledNamespacedRegistry;
+import cpw.mods.fml.common.registry.GameData;
+import net.doubledoordev.pay2spawn.util.JsonNBTHelper;
+import net.minecraft.block.Block;
+import net.minecraft.item.Item;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static net.doubledoordev.pay2spawn.util.Constants.*;
+
+/**
+ * The old regex resolver loop against RandomExpression, over every typed value in a rewards file.
+ * Run the game once (gradle runClient) to get the example rewards in jars/config/Pay2Spawn/Pay2Spawn.json,
+ * or pass any other rewards file with gradle jmh -Prewards=path.
+ * $randomEntity values are left out, both paths need the entity list of a running game for those.
+ * <p/>
+ * Before measuring, every value is solved by both paths with the same seed and differences are printed.
+ * Values with more than one tag can differ, the old loop draws its randoms in the resolvers' HashMap order.
+ *
+ * @author Dries007
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RandomExpressionBenchmark
+{
+    @Param("jars/config/Pay2Spawn/Pay2Spawn.json")
+    public String rewards;
+
+    private int[]              types;
+    private String[]           values;
+    private RandomExpression[] compiled;
+    private IRandomResolver[]  resolvers;
+
+    @Setup
+    public void setup() throws IOException
+    {
+        ArrayList<Integer> typeList = new ArrayList<>();
+        ArrayList<String> valueList = new ArrayList<>();
+        FileReader reader = new FileReader(rewards);
+        try
+        {
+            collect(JSON_PARSER.parse(reader), typeList, valueList);
+        }
+        finally
+        {
+            reader.close();
+        }
+        if (valueList.isEmpty()) throw new IllegalStateException("No typed values in " + rewards);
+
+        types = new int[typeList.size()];
+        values = valueList.toArray(new String[valueList.size()]);
+        compiled = new RandomExpression[values.length];
+        for (int i = 0; i < values.length; i++)
+        {
+            types[i] = typeList.get(i);
+            compiled[i] = RandomRegistry.compile(types[i], values[i]);
+        }
+
+        // The resolvers the old RandomRegistry looped over, minus RndEntity
+        resolvers = new IRandomResolver[] {new RndVariable(), new RndBoolean(), new RndColors(), new RndListValue(), new RndNumberRange(), new ItemId<Item>()
+        {
+            @Override
+            public FMLControlledNamespacedRegistry<Item> getRegistry()
+            {
+                return GameData.getItemRegistry();
+            }
+        }, new ItemId<Block>()
+        {
+            @Override
+            public FMLControlledNamespacedRegistry<Block> getRegistry()
+            {
+                return GameData.getBlockRegistry();
+            }
+        }, new ASCIIFilter()};
+
+        int same = 0;
+        for (int i = 0; i < values.length; i++)
+        {
+            RndVariable.reset();
+            RANDOM.setSeed(i);
+            String old = solveResolvers(types[i], values[i]);
+            RndVariable.reset();
+            RANDOM.setSeed(i);
+            String now = RandomRegistry.solveRandom(compiled[i]);
+            if (old.equals(now)) same++;
+            else System.out.println("Different: " + NBTTypes[types[i]] + ":" + values[i] + " -> old: " + old + " new: " + now);
+        }
+        System.out.println(same + " of " + values.length + " values from " + rewards + " solve the same with the same seed.");
+    }
+
+    private static void collect(JsonElement element, ArrayList<Integer> types, ArrayList<String> values)
+    {
+        if (element.isJsonObject())
+        {
+            for (Map.Entry<String, JsonElement> entry : ((JsonObject) element).entrySet()) collect(entry.getValue(), types, values);
+        }
+        else if (element.isJsonArray())
+        {
+            for (JsonElement child : element.getAsJsonArray()) collect(child, types, values);
+        }
+        else if (element.isJsonPrimitive() && element.getAsJsonPrimitive().isString())
+        {
+            String string = element.getAsString();
+            int id = JsonNBTHelper.getTypeId(string);
+            if (id == -1) return;
+            String value = string.replace(NBTTypes[id] + ":", "");
+            if (value.contains("$randomEntity")) return;
+            types.add(id);
+            values.add(value);
+        }
+    }
+
+    /**
+     * The loop RandomRegistry#solveRandom used for every value
+     */
+    private String solveResolvers(int type, String value)
+    {
+        String oldValue;
+        do
+        {
+            oldValue = value;
+            for (IRandomResolver resolver : resolvers)
+            {
+                if (resolver.matches(type, value)) value = resolver.solverRandom(type, value);
+            }
+        }
+        while (!oldValue.equals(value));
+
+        return value;
+    }
+
+    @Benchmark
+    public void regexResolvers(Blackhole blackhole)
+    {
+        RndVariable.reset();
+        for (int i = 0; i < values.length; i++) blackhole.consume(solveResolvers(types[i], values[i]));
+    }
+
+    /**
+     * What RewardTemplate does for slots with donation variables, they are parsed every time
+     */
+    @Benchmark
+    public void parseAndSolve(Blackhole blackhole)
+    {
+        RndVariable.reset();
+        for (int i = 0; i < values.length; i++) blackhole.consume(RandomRegistry.solveRandom(types[i], values[i]));
+    }
+
+    /**
+     * What RewardTemplate does for slots without donation variables, parsed at load
+     */
+    @Benchmark
+    public void solveParsed(Blackhole blackhole)
+    {
+        RndVariable.reset();
+        for (RandomExpression expression : compiled) blackhole.consume(RandomRegistry.solveRandom(expression));
+    }
+}
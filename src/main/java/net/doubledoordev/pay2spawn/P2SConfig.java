@@ -63,6 +63,7 @@ public class P2SConfig
     public String   serverMessage = "$streamer got $$amount from $name and $reward_name was triggered!";
     public String   allItemName   = "";
     public String[] allItemLore   = {};
+    public int      donationIdHours = 72;
 
     @SuppressWarnings("FieldCanBeLocal")
     private String[] blacklist_Name = {"fuck", "cunt", "dick", "shit"};
@@ -89,6 +90,7 @@ public class P2SConfig
         channel = configuration.getString("channel", MODID.toLowerCase(), channel, "Your channel name on twitch or any other streaming service.\nYou need this for stats and for the twitch sub tracker.\nTHIS CHANGED PLACE");
         allItemLore = configuration.getStringList("allItemLore", MODID.toLowerCase(), allItemLore, "A lore applied to all items spawned via p2s.");
         allItemName = configuration.getString("allItemName", MODID.toLowerCase(), allItemName, "A name applied to all items spawned via p2s.");
+        donationIdHours = configuration.getInt("donationIdHours", MODID.toLowerCase(), donationIdHours, 1, 24 * 365, "How long (in hours) donation IDs are remembered across restarts.\nCheckers only re-download the full donation history when this runs out.");
 
         configuration.setCategoryLanguageKey(MODID, "d3.pay2spawn.config.general");
         configuration.setCategoryLanguageKey(SERVER_CAT, "d3.pay2spawn.config.server");
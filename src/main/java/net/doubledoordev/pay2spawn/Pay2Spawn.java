@@ -207,13 +207,14 @@ public class Pay2Spawn implements ID3Mod
         snw.registerMessage(StatusMessage.Handler.class, StatusMessage.class, id++, Side.SERVER);
         snw.registerMessage(StatusMessage.Handler.class, StatusMessage.class, id++, Side.CLIENT);
         snw.registerMessage(TestMessage.Handler.class, TestMessage.class, id++, Side.SERVER);
-        snw.registerMessage(StructureImportMessage.Handler.class, StructureImportMessage.class, id++, Side.SERVER);
-        snw.registerMessage(StructureImportMessage.Handler.class, StructureImportMessage.class, id++, Side.CLIENT);
+        snw.registerMessage(PartMessage.Handler.class, PartMessage.class, id++, Side.SERVER);
+        snw.registerMessage(PartMessage.Handler.class, PartMessage.class, id++, Side.CLIENT);
         snw.registerMessage(HTMLuploadMessage.Handler.class, HTMLuploadMessage.class, id++, Side.SERVER);
         snw.registerMessage(CrashMessage.Handler.class, CrashMessage.class, id++, Side.CLIENT);
 
         TypeRegistry.preInit();
         Statistics.preInit();
+        Analytics.INSTANCE.init();
 
         config.syncConfig();
     }
@@ -222,11 +223,13 @@ public class Pay2Spawn implements ID3Mod
     public void init(FMLInitializationEvent event) throws MalformedURLException
     {
         ServerTickHandler.INSTANCE.init();
+        BlockPlacer.INSTANCE.init();
 
         rewardsDB = new RewardsDB(getRewardDBFile());
 
         if (event.getSide().isClient())
         {
+            ProfileResolver.INSTANCE.init();
             CheckerHandler.init();
             new EventHandler();
             ClientCommandHandler.instance.registerCommand(new CommandP2S());
@@ -246,6 +249,7 @@ public class Pay2Spawn implements ID3Mod
         for (TypeBase base : TypeRegistry.getAllTypes()) base.printHelpList(configFolder);
 
         TypeRegistry.registerPermissions();
+        RegistrySnapshot.get();
         try
         {
             HTMLGenerator.init();
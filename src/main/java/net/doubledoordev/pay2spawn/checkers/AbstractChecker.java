@@ -30,14 +30,13 @@
 
 package net.doubledoordev.pay2spawn.checkers;
 
-import net.doubledoordev.pay2spawn.Pay2Spawn;
 import net.doubledoordev.pay2spawn.hud.DonationsBasedHudEntry;
 import net.doubledoordev.pay2spawn.util.Donation;
-import net.doubledoordev.pay2spawn.util.Statistics;
-import net.minecraft.client.Minecraft;
 import net.minecraftforge.common.config.Configuration;
 
-import java.util.HashSet;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Base class for all donation checkers
@@ -46,9 +45,9 @@ import java.util.HashSet;
  */
 public abstract class AbstractChecker
 {
-    public    double            min_donation = 1;
-    protected HashSet<String>   doneIDs      = new HashSet<>();
-    protected HashSet<Donation> backlog      = new HashSet<>();
+    public volatile double               min_donation = 1;
+    protected final DonationIdStore.View doneIDs      = new DonationIdStore.View(this);
+    protected final Set<Donation>        backlog      = Collections.newSetFromMap(new ConcurrentHashMap<Donation, Boolean>());
 
     protected AbstractChecker()
     {
@@ -84,40 +83,13 @@ public abstract class AbstractChecker
         }
     }
 
+    /**
+     * Queue a donation on the pipeline, the actual processing happens on the pipeline thread.
+     *
+     * @see net.doubledoordev.pay2spawn.checkers.DonationPipeline
+     */
     protected void process(Donation donation, boolean msg, AbstractChecker tracker)
     {
-        if (Minecraft.getMinecraft().thePlayer == null || !Pay2Spawn.enable)
-        {
-            if (!backlog.contains(donation)) backlog.add(donation);
-            return;
-        }
-
-        if (!doneIDs.contains(donation.id))
-        {
-            doneIDs.add(donation.id);
-            if (donation.amount > 0 && tracker.addToTotal()) // Only do these things for real donation amounts.
-            {
-                Statistics.addToDonationAmount(donation.amount);
-                if (donation.amount < min_donation) return;
-            }
-            try
-            {
-                if (this.getDonationsBasedHudEntries() != null)
-                {
-                    for (DonationsBasedHudEntry donationsBasedHudEntry : this.getDonationsBasedHudEntries())
-                    {
-                        if (donationsBasedHudEntry != null) donationsBasedHudEntry.add(donation);
-                        else Pay2Spawn.getLogger().warn("DonationsBasedHudEntry was null" + this.getName());
-                    }
-                }
-
-                Pay2Spawn.getRewardsDB().process(donation, msg);
-            }
-            catch (Exception e)
-            {
-                Pay2Spawn.getLogger().warn("Error processing a donation with " + this.getName());
-                e.printStackTrace();
-            }
-        }
+        DonationPipeline.INSTANCE.offer(tracker, donation, msg);
     }
 }
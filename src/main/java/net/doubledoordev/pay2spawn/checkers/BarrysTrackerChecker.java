@@ -36,7 +36,6 @@ import com.google.gson.JsonObject;
 import net.doubledoordev.pay2spawn.hud.DonationsBasedHudEntry;
 import net.doubledoordev.pay2spawn.hud.Hud;
 import net.doubledoordev.pay2spawn.util.Donation;
-import net.doubledoordev.pay2spawn.util.Helper;
 import net.minecraftforge.common.config.Configuration;
 
 import java.io.IOException;
@@ -50,7 +49,7 @@ import static net.doubledoordev.pay2spawn.util.Constants.JSON_PARSER;
  *
  * @author BarryCarlyon
  */
-public class BarrysTrackerChecker extends AbstractChecker implements Runnable
+public class BarrysTrackerChecker extends PollingChecker
 {
     public final static BarrysTrackerChecker INSTANCE = new BarrysTrackerChecker();
     public final static String               NAME     = "barrys-tracker";
@@ -58,11 +57,10 @@ public class BarrysTrackerChecker extends AbstractChecker implements Runnable
     public              String               URL      = "http://localhost:8082/donations/";
     DonationsBasedHudEntry topDonationsBasedHudEntry, recentDonationsBasedHudEntry;
     boolean enabled  = false;
-    int     interval = 5;
 
     private BarrysTrackerChecker()
     {
-        super();
+        super(5);
     }
 
     @Override
@@ -77,7 +75,7 @@ public class BarrysTrackerChecker extends AbstractChecker implements Runnable
         Hud.INSTANCE.set.add(topDonationsBasedHudEntry);
         Hud.INSTANCE.set.add(recentDonationsBasedHudEntry);
 
-        new Thread(this, getName()).start();
+        PollingEngine.INSTANCE.schedule(this);
     }
 
     @Override
@@ -93,6 +91,7 @@ public class BarrysTrackerChecker extends AbstractChecker implements Runnable
 
         enabled = configuration.get(CAT, "enabled", enabled).getBoolean(enabled);
         interval = configuration.get(CAT, "interval", interval, "The time in between polls minimum 5 (in seconds).").getInt();
+        timeout = configuration.get(CAT, "timeout", timeout, "The connect and read timeout for polls (in seconds).").getInt();
         min_donation = configuration.get(CAT, "min_donation", min_donation, "Donations below this amount will only be added to statistics and will not spawn rewards").getDouble();
         URL = configuration.get(CAT, "url", URL, "Donation Tracker Ping Point. Match to the Settings in the Tracker").getString();
 
@@ -116,58 +115,41 @@ public class BarrysTrackerChecker extends AbstractChecker implements Runnable
     }
 
     @Override
-    public void run()
+    protected URL getURL(boolean firstRun) throws IOException
     {
-        // Process any current donations from the API
-        processDonationAPI(true);
-
-        // Start the processing loop
-        while (true)
-        {
-            // Pause the configured wait period
-            doWait(interval);
-
-            // Check for any new donations
-            processDonationAPI(false);
-        }
+        return new URL(String.format(URL));
     }
 
     /**
-     * Connects to the API and attempt to process any donations
+     * Process any donations from the API
      *
      * @param firstRun <code>boolean</code> used to identify previous donations that should not be processed.
      */
-    private void processDonationAPI(boolean firstRun)
+    @Override
+    protected void parse(String body, boolean firstRun)
     {
-        try
+        JsonObject root = JSON_PARSER.parse(body).getAsJsonObject();
+        if (root.getAsJsonPrimitive("status").getAsInt() == 200)
         {
-            JsonObject root = JSON_PARSER.parse(Helper.readUrl(new URL(String.format(URL)))).getAsJsonObject();
-            if (root.getAsJsonPrimitive("status").getAsInt() == 200)
+            JsonArray donations = root.getAsJsonArray("donations");
+            for (JsonElement jsonElement : donations)
             {
-                JsonArray donations = root.getAsJsonArray("donations");
-                for (JsonElement jsonElement : donations)
+                Donation donation = getDonation(jsonElement.getAsJsonObject());
+
+                // Make sure we have a donation to work with and see if this is a first run
+                if (donation != null && firstRun == true)
+                {
+                    // This is a first run so add to current list/done ids
+                    topDonationsBasedHudEntry.add(donation);
+                    doneIDs.add(donation.id);
+                }
+                else if (donation != null)
                 {
-                    Donation donation = getDonation(jsonElement.getAsJsonObject());
-
-                    // Make sure we have a donation to work with and see if this is a first run
-                    if (donation != null && firstRun == true)
-                    {
-                        // This is a first run so add to current list/done ids
-                        topDonationsBasedHudEntry.add(donation);
-                        doneIDs.add(donation.id);
-                    }
-                    else if (donation != null)
-                    {
-                        // We have a donation and this is a loop check so process the donation
-                        process(donation, true, this);
-                    }
+                    // We have a donation and this is a loop check so process the donation
+                    process(donation, true, this);
                 }
             }
         }
-        catch (IOException e)
-        {
-            e.printStackTrace();
-        }
     }
 
     private Donation getDonation(JsonObject jsonObject)
@@ -30,7 +30,6 @@
 
 package net.doubledoordev.pay2spawn.checkers;
 
-import net.doubledoordev.pay2spawn.Pay2Spawn;
 import net.doubledoordev.pay2spawn.util.Donation;
 import net.doubledoordev.pay2spawn.util.Helper;
 import net.minecraft.util.EnumChatFormatting;
@@ -102,6 +101,7 @@ public class CheckerHandler
 
     public static void init()
     {
+        DonationPipeline.INSTANCE.init();
         for (AbstractChecker abstractChecker : map.values())
         {
             if (abstractChecker.enabled()) abstractChecker.init();
@@ -112,6 +112,6 @@ public class CheckerHandler
     {
         Donation donation = new Donation(UUID.randomUUID().toString(), amount, new Date().getTime(), name);
         Helper.msg(EnumChatFormatting.GOLD + "[P2S] Faking donation of " + amount + " from " + name + ".");
-        Pay2Spawn.getRewardsDB().process(donation, false);
+        DonationPipeline.INSTANCE.offer(null, donation, false);
     }
 }
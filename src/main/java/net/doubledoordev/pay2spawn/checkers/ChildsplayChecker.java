@@ -43,9 +43,7 @@ import net.minecraftforge.common.config.Configuration;
 
 import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
+import java.io.IOException;
 import java.net.URL;
 import java.net.URLEncoder;
 import java.text.ParseException;
@@ -61,12 +59,13 @@ import static net.doubledoordev.pay2spawn.util.Constants.*;
  *
  * @author Dries007
  */
-public class ChildsplayChecker extends AbstractChecker implements Runnable
+public class ChildsplayChecker extends PollingChecker
 {
     public final static ChildsplayChecker INSTANCE           = new ChildsplayChecker();
     public final static String            NAME               = "childsplay";
     public final static String            CAT                = BASECAT_TRACKERS + '.' + NAME;
     public final static String            ENDPOINT           = "donate.childsplaycharity.org";
+    public final static String            URI                = "/api/donations/10/json";
     public final static SimpleDateFormat  SIMPLE_DATE_FORMAT = new SimpleDateFormat("EEE, dd MMM YYYY HH:mm:ss zzz", Locale.US);
 
     static
@@ -78,12 +77,11 @@ public class ChildsplayChecker extends AbstractChecker implements Runnable
 
     String APIKey = "", APIsecret = "";
     boolean          enabled  = false;
-    int              interval = 20;
     SimpleDateFormat sdf      = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
 
     private ChildsplayChecker()
     {
-        super();
+        super(20);
     }
 
     public static String encode(String key, String data) throws Exception
@@ -106,7 +104,7 @@ public class ChildsplayChecker extends AbstractChecker implements Runnable
     {
         Hud.INSTANCE.set.add(recentDonationsBasedHudEntry);
 
-        new Thread(this, getName()).start();
+        PollingEngine.INSTANCE.schedule(this);
     }
 
     @Override
@@ -124,6 +122,7 @@ public class ChildsplayChecker extends AbstractChecker implements Runnable
         APIKey = configuration.get(CAT, "APIKey", APIKey).getString();
         APIsecret = configuration.get(CAT, "APIsecret", APIsecret).getString();
         interval = configuration.get(CAT, "interval", interval, "The time in between polls (in seconds).").getInt();
+        timeout = configuration.get(CAT, "timeout", timeout, "The connect and read timeout for polls (in seconds).").getInt();
         min_donation = configuration.get(CAT, "min_donation", min_donation, "Donations below this amount will only be added to statistics and will not spawn rewards").getDouble();
 
         recentDonationsBasedHudEntry = new DonationsBasedHudEntry("recent" + NAME + ".txt", CAT + ".recentDonations", -1, 2, 5, "$name: $$amount", "-- Recent donations --", CheckerHandler.RECENT_DONATION_COMPARATOR);
@@ -136,45 +135,41 @@ public class ChildsplayChecker extends AbstractChecker implements Runnable
     }
 
     @Override
-    public void run()
+    protected URL getURL(boolean firstRun) throws IOException
     {
+        return new URL("https://" + ENDPOINT + URI);
+    }
+
+    @Override
+    protected String[][] getHeaders() throws IOException
+    {
+        String date = SIMPLE_DATE_FORMAT.format(new Date());
         try
         {
-            JsonObject root = get();
-            if (root.get("ack").getAsString().equalsIgnoreCase("Success"))
-            {
-                JsonArray donations = root.getAsJsonArray("donations");
-                for (JsonElement jsonElement : donations)
-                {
-                    Donation donation = getDonation(JsonNBTHelper.fixNulls(jsonElement.getAsJsonObject()));
-                    recentDonationsBasedHudEntry.add(donation);
-                    doneIDs.add(donation.id);
-                }
-            }
+            return new String[][]{{"User-Agent", "CP/pay2spawn"}, {"Host", ENDPOINT}, {"Date", date}, {"Authorization", getSignature("GET\n\n\n" + date + "\n" + URI)}};
         }
         catch (Exception e)
         {
-            e.printStackTrace();
+            throw new IOException("Could not sign the request", e);
         }
+    }
 
-        while (true)
+    @Override
+    protected void parse(String body, boolean firstRun)
+    {
+        JsonObject root = JSON_PARSER.parse(body).getAsJsonObject();
+        if (root.get("ack").getAsString().equalsIgnoreCase("Success"))
         {
-            doWait(interval);
-            try
+            JsonArray donations = root.getAsJsonArray("donations");
+            for (JsonElement jsonElement : donations)
             {
-                JsonObject root = get();
-                if (root.get("ack").getAsString().equalsIgnoreCase("Success"))
+                Donation donation = getDonation(JsonNBTHelper.fixNulls(jsonElement.getAsJsonObject()));
+                if (firstRun)
                 {
-                    JsonArray donations = root.getAsJsonArray("donations");
-                    for (JsonElement jsonElement : donations)
-                    {
-                        process(getDonation(JsonNBTHelper.fixNulls(jsonElement.getAsJsonObject())), true, this);
-                    }
+                    recentDonationsBasedHudEntry.add(donation);
+                    doneIDs.add(donation.id);
                 }
-            }
-            catch (Exception e)
-            {
-                e.printStackTrace();
+                else process(donation, true, this);
             }
         }
     }
@@ -195,25 +190,6 @@ public class ChildsplayChecker extends AbstractChecker implements Runnable
         return new Donation(jsonObject.get("id").toString(), jsonObject.get("amount").getAsDouble(), time, name, jsonObject.get("custom").getAsString());
     }
 
-    private JsonObject get() throws Exception
-    {
-        String uri = "/api/donations/10/json";
-        String date = SIMPLE_DATE_FORMAT.format(new Date());
-        String sig = getSignature("GET\n\n\n" + date + "\n" + uri);
-
-        URL url = new URL("https://" + ENDPOINT + uri);
-        HttpURLConnection con = (HttpURLConnection) url.openConnection();
-        con.setRequestMethod("GET");
-        con.setRequestProperty("User-Agent", "CP/pay2spawn");
-
-        con.setRequestProperty("Host", ENDPOINT);
-        con.setRequestProperty("Date", date);
-        con.setRequestProperty("Authorization", sig);
-
-        BufferedReader in = new BufferedReader(new InputStreamReader(con.getInputStream()));
-        return JSON_PARSER.parse(in).getAsJsonObject();
-    }
-
     private String getSignature(String s) throws Exception
     {
         return "CP " + APIKey + ":" + URLEncoder.encode(encode(APIsecret, s), "UTF-8");
@@ -37,7 +37,6 @@ import com.google.gson.JsonObject;
 import net.doubledoordev.pay2spawn.hud.DonationsBasedHudEntry;
 import net.doubledoordev.pay2spawn.hud.Hud;
 import net.doubledoordev.pay2spawn.util.Donation;
-import net.doubledoordev.pay2spawn.util.Helper;
 import net.minecraftforge.common.config.Configuration;
 
 import java.io.IOException;
@@ -53,7 +52,7 @@ import static net.doubledoordev.pay2spawn.util.Constants.JSON_PARSER;
  *
  * @author Dries007
  */
-public class ClassyChecker extends AbstractChecker implements Runnable
+public class ClassyChecker extends PollingChecker
 {
     public final static ClassyChecker INSTANCE = new ClassyChecker();
     public final static String        NAME     = "classy";
@@ -64,11 +63,10 @@ public class ClassyChecker extends AbstractChecker implements Runnable
     DonationsBasedHudEntry topDonationsBasedHudEntry, recentDonationsBasedHudEntry;
     String url = "", apiToken = "", charityId = "", eid = "", fcid = "", ftid = "";
     boolean enabled  = false;
-    int     interval = 5;
 
     private ClassyChecker()
     {
-        super();
+        super(5);
     }
 
     @Override
@@ -83,7 +81,7 @@ public class ClassyChecker extends AbstractChecker implements Runnable
         Hud.INSTANCE.set.add(topDonationsBasedHudEntry);
         Hud.INSTANCE.set.add(recentDonationsBasedHudEntry);
 
-        new Thread(this, getName()).start();
+        PollingEngine.INSTANCE.schedule(this);
     }
 
     @Override
@@ -99,6 +97,7 @@ public class ClassyChecker extends AbstractChecker implements Runnable
 
         enabled = configuration.get(CAT, "enabled", enabled).getBoolean(enabled);
         interval = configuration.get(CAT, "interval", interval, "The time in between polls minimum 5 (in seconds).").getInt();
+        timeout = configuration.get(CAT, "timeout", timeout, "The connect and read timeout for polls (in seconds).").getInt();
         min_donation = configuration.get(CAT, "min_donation", min_donation, "Donations below this amount will only be added to statistics and will not spawn rewards").getDouble();
 
         apiToken = configuration.get(CAT, "apiToken", apiToken, "The charity api token.").getString();
@@ -134,58 +133,41 @@ public class ClassyChecker extends AbstractChecker implements Runnable
     }
 
     @Override
-    public void run()
+    protected URL getURL(boolean firstRun) throws IOException
     {
-        // Process any current donations from the API
-        processDonationAPI(true);
-
-        // Start the processing loop
-        while (true)
-        {
-            // Pause the configured wait period
-            doWait(interval);
-
-            // Check for any new donations
-            processDonationAPI(false);
-        }
+        return new URL(url);
     }
 
     /**
-     * Connects to the API and attempt to process any donations
+     * Process any donations from the API
      *
      * @param firstRun <code>boolean</code> used to identify previous donations that should not be processed.
      */
-    private void processDonationAPI(boolean firstRun)
+    @Override
+    protected void parse(String body, boolean firstRun)
     {
-        try
+        JsonObject root = JSON_PARSER.parse(body).getAsJsonObject();
+        if (root.getAsJsonPrimitive("status_code").getAsString().equals("SUCCESS"))
         {
-            JsonObject root = JSON_PARSER.parse(Helper.readUrl(new URL(url))).getAsJsonObject();
-            if (root.getAsJsonPrimitive("status_code").getAsString().equals("SUCCESS"))
+            JsonArray donations = root.getAsJsonArray("donations");
+            for (JsonElement jsonElement : donations)
             {
-                JsonArray donations = root.getAsJsonArray("donations");
-                for (JsonElement jsonElement : donations)
+                Donation donation = getDonation(jsonElement.getAsJsonObject());
+
+                // Make sure we have a donation to work with and see if this is a first run
+                if (donation != null && firstRun == true)
+                {
+                    // This is a first run so add to current list/done ids
+                    topDonationsBasedHudEntry.add(donation);
+                    doneIDs.add(donation.id);
+                }
+                else if (donation != null)
                 {
-                    Donation donation = getDonation(jsonElement.getAsJsonObject());
-
-                    // Make sure we have a donation to work with and see if this is a first run
-                    if (donation != null && firstRun == true)
-                    {
-                        // This is a first run so add to current list/done ids
-                        topDonationsBasedHudEntry.add(donation);
-                        doneIDs.add(donation.id);
-                    }
-                    else if (donation != null)
-                    {
-                        // We have a donation and this is a loop check so process the donation
-                        process(donation, true, this);
-                    }
+                    // We have a donation and this is a loop check so process the donation
+                    process(donation, true, this);
                 }
             }
         }
-        catch (IOException e)
-        {
-            e.printStackTrace();
-        }
     }
 
     private Donation getDonation(JsonObject jsonObject)
@@ -0,0 +1,322 @@
+/*
+ * Copyright (c) 2014, DoubleDoorDevelopment
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ *
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ *  Neither the name of the project nor the names of its
+ *   contributors may be used to endorse or promote products derived from
+ *   this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.doubledoordev.pay2spawn.checkers;
+
+import net.doubledoordev.pay2spawn.Pay2Spawn;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Persistent, fixed size set of donation IDs shared by all checkers.
+ * IDs are stored as 64 bit hashes in a memory mapped open addressing table, every slot has a last seen timestamp.
+ * Entries older than the configured TTL are reused, and if the table still fills up the oldest half is dropped.
+ * A Bloom filter on the heap keeps lookups for new IDs from touching the table at all.
+ *
+ * @author Dries007
+ */
+public class DonationIdStore
+{
+    public static final String FILENAME = "DonationIDs.dat";
+    public static final int    SLOTS    = 1 << 16;
+
+    private static final int  MAGIC       = 0x50325344; // P2SD
+    private static final int  VERSION     = 1;
+    private static final int  HEADER      = 16;
+    private static final int  SLOT        = 16;
+    private static final int  MAX_LOAD    = SLOTS / 4 * 3;
+    private static final int  BLOOM_BITS  = SLOTS * 16;
+    private static final char SEPARATOR   = '\0';
+    private static final String SEEDED    = SEPARATOR + "#seeded";
+
+    private static DonationIdStore instance;
+
+    private final ByteBuffer buffer;
+    private final long[]     bloom = new long[BLOOM_BITS / 64];
+    private final long       ttl;
+    private       int        used;
+
+    private DonationIdStore(ByteBuffer buffer, long ttl)
+    {
+        this.buffer = buffer;
+        this.ttl = ttl;
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION || buffer.getInt(8) != SLOTS)
+        {
+            for (int i = 0; i < buffer.capacity(); i += 8) buffer.putLong(i, 0);
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putInt(8, SLOTS);
+        }
+        for (int i = 0; i < SLOTS; i++)
+        {
+            long key = key(i);
+            if (key == 0) continue;
+            used++;
+            bloomAdd(key);
+        }
+    }
+
+    public static synchronized DonationIdStore get()
+    {
+        if (instance == null)
+        {
+            long ttl = TimeUnit.HOURS.toMillis(Pay2Spawn.getConfig().donationIdHours);
+            int size = HEADER + SLOTS * SLOT;
+            ByteBuffer buffer;
+            try
+            {
+                RandomAccessFile file = new RandomAccessFile(new File(Pay2Spawn.getFolder(), FILENAME), "rw");
+                final MappedByteBuffer mapped = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+                file.close(); // The mapping stays valid
+                Runtime.getRuntime().addShutdownHook(new Thread("P2S donation ID flush")
+                {
+                    @Override
+                    public void run()
+                    {
+                        mapped.force();
+                    }
+                });
+                buffer = mapped;
+            }
+            catch (IOException e)
+            {
+                Pay2Spawn.getLogger().warn("Could not open " + FILENAME + ", donation IDs will not survive a restart.");
+                e.printStackTrace();
+                buffer = ByteBuffer.allocateDirect(size);
+            }
+            instance = new DonationIdStore(buffer, ttl);
+        }
+        return instance;
+    }
+
+    /**
+     * @return true if the ID was not known (or expired) and is now stored
+     */
+    public synchronized boolean add(String checker, String id)
+    {
+        return put(hash(checker, id), System.currentTimeMillis());
+    }
+
+    public synchronized boolean contains(String checker, String id)
+    {
+        return find(hash(checker, id), System.currentTimeMillis()) != -1;
+    }
+
+    private boolean put(long key, long now)
+    {
+        int reusable = -1;
+        if (bloomMightContain(key))
+        {
+            int slot = find(key, now);
+            if (slot != -1)
+            {
+                buffer.putLong(offset(slot) + 8, now);
+                return false;
+            }
+        }
+
+        int slot = index(key);
+        while (true)
+        {
+            long other = key(slot);
+            if (other == 0) break;
+            if (other == key || (reusable == -1 && expired(slot, now)))
+            {
+                reusable = slot;
+                if (other == key) break;
+            }
+            slot = (slot + 1) & (SLOTS - 1);
+        }
+        if (reusable == -1)
+        {
+            if (used >= MAX_LOAD)
+            {
+                purge(now);
+                return put(key, now);
+            }
+            reusable = slot;
+            used++;
+        }
+        buffer.putLong(offset(reusable), key);
+        buffer.putLong(offset(reusable) + 8, now);
+        bloomAdd(key);
+        return true;
+    }
+
+    /**
+     * @return the slot of a live entry or -1
+     */
+    private int find(long key, long now)
+    {
+        if (!bloomMightContain(key)) return -1;
+        int slot = index(key);
+        while (true)
+        {
+            long other = key(slot);
+            if (other == 0) return -1;
+            if (other == key) return expired(slot, now) ? -1 : slot;
+            slot = (slot + 1) & (SLOTS - 1);
+        }
+    }
+
+    /**
+     * Rebuild the table with only the live entries, dropping the oldest half if that is not enough.
+     */
+    private void purge(long now)
+    {
+        long[] keys = new long[used];
+        long[] times = new long[used];
+        int live = 0;
+        for (int i = 0; i < SLOTS; i++)
+        {
+            long key = key(i);
+            if (key == 0 || expired(i, now)) continue;
+            keys[live] = key;
+            times[live++] = buffer.getLong(offset(i) + 8);
+        }
+        long cutoff = Long.MIN_VALUE;
+        if (live > SLOTS / 2)
+        {
+            long[] sorted = Arrays.copyOf(times, live);
+            Arrays.sort(sorted);
+            cutoff = sorted[live - SLOTS / 2];
+        }
+
+        for (int i = HEADER; i < buffer.capacity(); i += 8) buffer.putLong(i, 0);
+        Arrays.fill(bloom, 0);
+        used = 0;
+        for (int i = 0; i < live; i++)
+        {
+            if (times[i] < cutoff) continue;
+            int slot = index(keys[i]);
+            while (key(slot) != 0) slot = (slot + 1) & (SLOTS - 1);
+            buffer.putLong(offset(slot), keys[i]);
+            buffer.putLong(offset(slot) + 8, times[i]);
+            bloomAdd(keys[i]);
+            used++;
+        }
+        Pay2Spawn.getLogger().info("Purged donation ID store, " + used + " IDs left.");
+    }
+
+    private boolean expired(int slot, long now)
+    {
+        return now - buffer.getLong(offset(slot) + 8) > ttl;
+    }
+
+    private long key(int slot)
+    {
+        return buffer.getLong(offset(slot));
+    }
+
+    private static int offset(int slot)
+    {
+        return HEADER + slot * SLOT;
+    }
+
+    private static int index(long key)
+    {
+        return (int) (key ^ (key >>> 32)) & (SLOTS - 1);
+    }
+
+    private void bloomAdd(long key)
+    {
+        int a = (int) key & (BLOOM_BITS - 1);
+        int b = (int) (key >>> 40) & (BLOOM_BITS - 1);
+        bloom[a >>> 6] |= 1L << a;
+        bloom[b >>> 6] |= 1L << b;
+    }
+
+    private boolean bloomMightContain(long key)
+    {
+        int a = (int) key & (BLOOM_BITS - 1);
+        int b = (int) (key >>> 40) & (BLOOM_BITS - 1);
+        return (bloom[a >>> 6] & 1L << a) != 0 && (bloom[b >>> 6] & 1L << b) != 0;
+    }
+
+    /**
+     * FNV-1a followed by the murmur3 finalizer. 0 marks an empty slot, so it is never returned.
+     */
+    private static long hash(String checker, String id)
+    {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < checker.length(); i++) h = (h ^ checker.charAt(i)) * 0x100000001b3L;
+        h = (h ^ SEPARATOR) * 0x100000001b3L;
+        for (int i = 0; i < id.length(); i++) h = (h ^ id.charAt(i)) * 0x100000001b3L;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h == 0 ? 1 : h;
+    }
+
+    /**
+     * The per checker view, this is what checkers see as their doneIDs.
+     */
+    public static class View
+    {
+        private final AbstractChecker checker;
+
+        View(AbstractChecker checker)
+        {
+            this.checker = checker;
+        }
+
+        public boolean add(String id)
+        {
+            return get().add(checker.getName(), id);
+        }
+
+        public boolean contains(String id)
+        {
+            return get().contains(checker.getName(), id);
+        }
+
+        /**
+         * @return true if this checker polled within the TTL, so the history is already in the store
+         */
+        public boolean isSeeded()
+        {
+            return contains(SEEDED);
+        }
+
+        public void setSeeded()
+        {
+            add(SEEDED);
+        }
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) 2014, DoubleDoorDevelopment
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ *
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ *  Neither the name of the project nor the names of its
+ *   contributors may be used to endorse or promote products derived from
+ *   this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.doubledoordev.pay2spawn.checkers;
+
+import net.doubledoordev.pay2spawn.Pay2Spawn;
+import net.doubledoordev.pay2spawn.hud.DonationsBasedHudEntry;
+import net.doubledoordev.pay2spawn.util.Analytics;
+import net.doubledoordev.pay2spawn.util.Donation;
+import net.doubledoordev.pay2spawn.util.MpscRingBuffer;
+import net.doubledoordev.pay2spawn.util.Statistics;
+import net.minecraft.client.Minecraft;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Single consumer stage in between all checkers and the RewardsDB.
+ * Checker threads only publish into the ring buffer, dedupe, filtering, statistics, HUD and reward matching
+ * all happen on the one pipeline thread, so none of that state is ever touched concurrently.
+ *
+ * @author Dries007
+ */
+public class DonationPipeline implements Runnable
+{
+    public static final DonationPipeline INSTANCE = new DonationPipeline();
+    public static final int              CAPACITY = 4096;
+
+    public final Stage wait    = new Stage("queued");
+    public final Stage process = new Stage("processed");
+
+    private final MpscRingBuffer<Entry> ring   = new MpscRingBuffer<>(CAPACITY);
+    private final AtomicLong            stalls = new AtomicLong();
+    private volatile Thread thread;
+
+    private DonationPipeline()
+    {
+    }
+
+    public synchronized void init()
+    {
+        if (thread != null) return;
+        thread = new Thread(this, "P2S donation pipeline");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Hand a donation to the pipeline. Never blocks on other checkers, only spins when the buffer is full.
+     *
+     * @param checker the source, or null for fake donations that skip dedupe, statistics and HUD
+     */
+    public void offer(AbstractChecker checker, Donation donation, boolean msg)
+    {
+        Entry entry = new Entry(checker, donation, msg);
+        while (!ring.offer(entry))
+        {
+            stalls.incrementAndGet();
+            wake();
+            Thread.yield();
+        }
+        wake();
+    }
+
+    public int getQueueDepth()
+    {
+        return ring.size();
+    }
+
+    public int getCapacity()
+    {
+        return ring.capacity();
+    }
+
+    /**
+     * @return how many times a producer found the buffer full
+     */
+    public long getStalls()
+    {
+        return stalls.get();
+    }
+
+    private void wake()
+    {
+        Thread t = thread;
+        if (t != null) LockSupport.unpark(t);
+    }
+
+    @Override
+    public void run()
+    {
+        while (true)
+        {
+            Entry entry = ring.poll();
+            if (entry == null)
+            {
+                LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(100));
+                continue;
+            }
+            long start = System.nanoTime();
+            wait.record(start - entry.queued);
+            try
+            {
+                handle(entry);
+            }
+            catch (Exception e)
+            {
+                Pay2Spawn.getLogger().warn("Error processing a donation with " + (entry.checker == null ? "the pipeline" : entry.checker.getName()));
+                e.printStackTrace();
+            }
+            process.record(System.nanoTime() - start);
+        }
+    }
+
+    private void handle(Entry entry)
+    {
+        AbstractChecker checker = entry.checker;
+        Donation donation = entry.donation;
+        if (checker == null)
+        {
+            Pay2Spawn.getRewardsDB().process(donation, entry.msg);
+            return;
+        }
+
+        if (Minecraft.getMinecraft().thePlayer == null || !Pay2Spawn.enable)
+        {
+            checker.backlog.add(donation);
+            return;
+        }
+
+        if (!checker.doneIDs.add(donation.id)) return;
+        Analytics.INSTANCE.record(Analytics.Kind.DONATION, checker.getName(), donation.amount, donation.time > 0 ? Math.max(0, System.currentTimeMillis() - donation.time) : 0);
+
+        if (donation.amount > 0 && checker.addToTotal()) // Only do these things for real donation amounts.
+        {
+            Statistics.addToDonationAmount(donation.amount);
+            if (donation.amount < checker.min_donation) return;
+        }
+
+        if (checker.getDonationsBasedHudEntries() != null)
+        {
+            for (DonationsBasedHudEntry donationsBasedHudEntry : checker.getDonationsBasedHudEntries())
+            {
+                if (donationsBasedHudEntry != null) donationsBasedHudEntry.add(donation);
+                else Pay2Spawn.getLogger().warn("DonationsBasedHudEntry was null" + checker.getName());
+            }
+        }
+
+        Pay2Spawn.getRewardsDB().process(donation, entry.msg);
+    }
+
+    private static final class Entry
+    {
+        final AbstractChecker checker;
+        final Donation        donation;
+        final boolean         msg;
+        final long            queued = System.nanoTime();
+
+        Entry(AbstractChecker checker, Donation donation, boolean msg)
+        {
+            this.checker = checker;
+            this.donation = donation;
+            this.msg = msg;
+        }
+    }
+
+    /**
+     * Latency of one pipeline stage. Only written by the pipeline thread.
+     */
+    public static final class Stage
+    {
+        public final String name;
+        private volatile long count, total, max, last;
+
+        Stage(String name)
+        {
+            this.name = name;
+        }
+
+        void record(long nanos)
+        {
+            count++;
+            total += nanos;
+            last = nanos;
+            if (nanos > max) max = nanos;
+        }
+
+        public long getCount()
+        {
+            return count;
+        }
+
+        public double getAverageMs()
+        {
+            long c = count;
+            return c == 0 ? 0 : total / (c * 1000000.0);
+        }
+
+        public double getMaxMs()
+        {
+            return max / 1000000.0;
+        }
+
+        public double getLastMs()
+        {
+            return last / 1000000.0;
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("%s: %d, avg %.3f ms, last %.3f ms, max %.3f ms", name, getCount(), getAverageMs(), getLastMs(), getMaxMs());
+        }
+    }
+}
@@ -37,7 +37,6 @@ import net.doubledoordev.pay2spawn.Pay2Spawn;
 import net.doubledoordev.pay2spawn.hud.DonationsBasedHudEntry;
 import net.doubledoordev.pay2spawn.hud.Hud;
 import net.doubledoordev.pay2spawn.util.Donation;
-import net.doubledoordev.pay2spawn.util.Helper;
 import net.minecraftforge.common.config.Configuration;
 
 import java.io.IOException;
@@ -51,7 +50,7 @@ import static net.doubledoordev.pay2spawn.util.Constants.JSON_PARSER;
  *
  * @author Dries007
  */
-public class DonationTrackerChecker extends AbstractChecker implements Runnable
+public class DonationTrackerChecker extends PollingChecker
 {
     public final static DonationTrackerChecker INSTANCE = new DonationTrackerChecker();
     public final static String                 NAME     = "donation-tracker";
@@ -60,11 +59,10 @@ public class DonationTrackerChecker extends AbstractChecker implements Runnable
     DonationsBasedHudEntry topDonationsBasedHudEntry, recentDonationsBasedHudEntry;
     String APIKey = "", channel = "";
     boolean enabled  = false;
-    int     interval = 20;
 
     private DonationTrackerChecker()
     {
-        super();
+        super(20);
     }
 
     @Override
@@ -79,7 +77,7 @@ public class DonationTrackerChecker extends AbstractChecker implements Runnable
         Hud.INSTANCE.set.add(topDonationsBasedHudEntry);
         Hud.INSTANCE.set.add(recentDonationsBasedHudEntry);
 
-        new Thread(this, getName()).start();
+        PollingEngine.INSTANCE.schedule(this);
     }
 
     @Override
@@ -97,6 +95,7 @@ public class DonationTrackerChecker extends AbstractChecker implements Runnable
 
         APIKey = configuration.get(CAT, "APIKey", APIKey).getString();
         interval = configuration.get(CAT, "interval", interval, "The time in between polls minimum 5 (in seconds).").getInt();
+        timeout = configuration.get(CAT, "timeout", timeout, "The connect and read timeout for polls (in seconds).").getInt();
         min_donation = configuration.get(CAT, "min_donation", min_donation, "Donations below this amount will only be added to statistics and will not spawn rewards").getDouble();
         URL = configuration.get(CAT, "url", URL, "Donation Tracker API end point string").getString();
         channel = configuration.get(CAT, "Channel", channel).getString();
@@ -121,58 +120,41 @@ public class DonationTrackerChecker extends AbstractChecker implements Runnable
     }
 
     @Override
-    public void run()
+    protected URL getURL(boolean firstRun) throws IOException
     {
-        // Process any current donations from the API
-        processDonationAPI(true);
-
-        // Start the processing loop
-        while (true)
-        {
-            // Pause the configured wait period
-            doWait(interval);
-
-            // Check for any new donations
-            processDonationAPI(false);
-        }
+        return new URL(String.format(URL, Pay2Spawn.getConfig().channel, APIKey));
     }
 
     /**
-     * Connects to the API and attempt to process any donations
+     * Process any donations from the API
      *
      * @param firstRun <code>boolean</code> used to identify previous donations that should not be processed.
      */
-    private void processDonationAPI(boolean firstRun)
+    @Override
+    protected void parse(String body, boolean firstRun)
     {
-        try
+        JsonObject root = JSON_PARSER.parse(body).getAsJsonObject();
+        if (root.getAsJsonPrimitive("api_check").getAsInt() == 1)
         {
-            JsonObject root = JSON_PARSER.parse(Helper.readUrl(new URL(String.format(URL, Pay2Spawn.getConfig().channel, APIKey)))).getAsJsonObject();
-            if (root.getAsJsonPrimitive("api_check").getAsInt() == 1)
+            JsonArray donations = root.getAsJsonArray("donations");
+            for (JsonElement jsonElement : donations)
             {
-                JsonArray donations = root.getAsJsonArray("donations");
-                for (JsonElement jsonElement : donations)
+                Donation donation = getDonation(jsonElement.getAsJsonObject());
+
+                // Make sure we have a donation to work with and see if this is a first run
+                if (donation != null && firstRun == true)
+                {
+                    // This is a first run so add to current list/done ids
+                    topDonationsBasedHudEntry.add(donation);
+                    doneIDs.add(donation.id);
+                }
+                else if (donation != null)
                 {
-                    Donation donation = getDonation(jsonElement.getAsJsonObject());
-
-                    // Make sure we have a donation to work with and see if this is a first run
-                    if (donation != null && firstRun == true)
-                    {
-                        // This is a first run so add to current list/done ids
-                        topDonationsBasedHudEntry.add(donation);
-                        doneIDs.add(donation.id);
-                    }
-                    else if (donation != null)
-                    {
-                        // We have a donation and this is a loop check so process the donation
-                        process(donation, true, this);
-                    }
+                    // We have a donation and this is a loop check so process the donation
+                    process(donation, true, this);
                 }
             }
         }
-        catch (IOException e)
-        {
-            e.printStackTrace();
-        }
     }
 
     private Donation getDonation(JsonObject jsonObject)
@@ -1,23 +1,29 @@
 package net.doubledoordev.pay2spawn.checkers;
 
+import com.google.common.base.Charsets;
 import com.google.common.io.Files;
 import net.doubledoordev.pay2spawn.Pay2Spawn;
 import net.doubledoordev.pay2spawn.hud.DonationsBasedHudEntry;
 import net.doubledoordev.pay2spawn.hud.Hud;
 import net.doubledoordev.pay2spawn.util.Donation;
-import net.minecraft.client.util.JsonException;
 import net.minecraftforge.common.config.Configuration;
 
-import java.io.File;
-import java.io.FileFilter;
-import java.io.IOException;
-import java.io.PrintWriter;
-import java.nio.charset.Charset;
+import java.io.*;
+import java.nio.file.*;
+import java.util.Arrays;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
 
 import static net.doubledoordev.pay2spawn.util.Constants.BASECAT_TRACKERS;
 import static net.doubledoordev.pay2spawn.util.Constants.GSON;
 
 /**
+ * Picks up donation json files dropped in a folder.
+ * By default this uses a WatchService, so files are handled as soon as they appear and an idle folder costs nothing.
+ * Writers should create the file under another name and rename it to *.json when done, we never look at anything else.
+ * Polling every second is still there for filesystems that can't be watched (network shares etc).
+ * High volume bots can append to one newline delimited spool file instead, see SpoolReader.
+ *
  * @author Dries007
  */
 public class FileSystemChecker extends AbstractChecker implements Runnable
@@ -25,6 +31,10 @@ public class FileSystemChecker extends AbstractChecker implements Runnable
     public static final FileSystemChecker INSTANCE = new FileSystemChecker();
     public static final String NAME = "filesystem";
     public final static String CAT = BASECAT_TRACKERS + '.' + NAME;
+    /**
+     * Full rescan interval in watch mode, in case the OS drops events
+     */
+    public final static int RESCAN = 30;
     public final static FileFilter FILTER = new FileFilter()
     {
         @Override
@@ -35,8 +45,11 @@ public class FileSystemChecker extends AbstractChecker implements Runnable
     };
     DonationsBasedHudEntry topDonationsBasedHudEntry, recentDonationsBasedHudEntry;
     boolean enabled  = false;
+    boolean poll     = false;
     String path;
-    private File folder;
+    String spoolName = "spool.ndjson";
+    private File        folder;
+    private SpoolReader spool;
 
     @Override
     public String getName()
@@ -62,11 +75,13 @@ public class FileSystemChecker extends AbstractChecker implements Runnable
     @Override
     public void doConfig(Configuration configuration)
     {
-        configuration.addCustomCategoryComment(CAT, "This is the checker for IRC bots and other local programs compatible with the FileSystemChecker\nFind more details here: https://gist.github.com/dries007/ce6b417c27155d0f0b7d");
+        configuration.addCustomCategoryComment(CAT, "This is the checker for IRC bots and other local programs compatible with the FileSystemChecker\nFind more details here: https://gist.github.com/dries007/ce6b417c27155d0f0b7d\nWrite files under a temporary name and rename them to *.json when done.");
         enabled = configuration.get(CAT, "enabled", enabled).getBoolean(enabled);
+        poll = configuration.get(CAT, "poll", poll, "Scan the folder every second instead of watching it. Use this if the folder is on a network share or other filesystem without change notifications.").getBoolean(poll);
         folder = new File(configuration.get(CAT, "path", "p2s_filesystemchecker", "Can be relative to minecraft run directory or absolute.").getString());
         if (folder.exists() && !folder.isDirectory()) enabled = false;
         else if (!folder.exists()) folder.mkdir();
+        spoolName = configuration.get(CAT, "spool", spoolName, "Name of the append-only spool file in the folder, one donation json object per line. Empty to disable.").getString();
 
         recentDonationsBasedHudEntry = new DonationsBasedHudEntry("recent" + NAME + ".txt", CAT + ".recentDonations", -1, 2, 5, "$name: $$amount", "-- Recent donations --", CheckerHandler.RECENT_DONATION_COMPARATOR);
         topDonationsBasedHudEntry = new DonationsBasedHudEntry("top" + NAME + ".txt", CAT + ".topDonations", -1, 1, 5, "$name: $$amount", "-- Top donations --", CheckerHandler.AMOUNT_DONATION_COMPARATOR);
@@ -81,41 +96,135 @@ public class FileSystemChecker extends AbstractChecker implements Runnable
     @Override
     public void run()
     {
+        if (!spoolName.isEmpty())
+        {
+            try
+            {
+                spool = new SpoolReader(new File(folder, spoolName));
+            }
+            catch (IOException e)
+            {
+                Pay2Spawn.getLogger().error("Can't open the spool offset file, the spool will be ignored.", e);
+            }
+        }
+
+        if (!poll)
+        {
+            try
+            {
+                watch();
+            }
+            catch (IOException | UnsupportedOperationException e)
+            {
+                Pay2Spawn.getLogger().warn("Can't watch " + folder + ", falling back to polling every second.", e);
+            }
+            catch (InterruptedException e)
+            {
+                return;
+            }
+        }
+
         while (true)
         {
             try
             {
-                for (File file : folder.listFiles(FILTER))
+                scan();
+            }
+            catch (IOException e)
+            {
+                Pay2Spawn.getLogger().error("IO error with FileSystemChecker!", e);
+            }
+            doWait(1);
+        }
+    }
+
+    private void watch() throws IOException, InterruptedException
+    {
+        Path dir = folder.toPath();
+        WatchService watcher = dir.getFileSystem().newWatchService();
+        try
+        {
+            dir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            scan(); // Anything that was dropped while we were not running
+            while (true)
+            {
+                WatchKey key = watcher.poll(RESCAN, TimeUnit.SECONDS);
+                if (key == null)
                 {
-                    Donation donation = null;
-                    try
+                    scan();
+                    continue;
+                }
+
+                // Batch everything that is queued up right now into one pass
+                TreeSet<String> names = new TreeSet<>();
+                boolean overflow = false;
+                do
+                {
+                    for (WatchEvent<?> event : key.pollEvents())
                     {
-                        donation = GSON.fromJson(Files.toString(file, Charset.defaultCharset()), Donation.class);
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW) overflow = true;
+                        else names.add(event.context().toString());
                     }
-                    catch (Exception e)
+                    if (!key.reset()) throw new IOException(folder + " is no longer accessible");
+                }
+                while ((key = watcher.poll()) != null);
+
+                if (overflow) scan();
+                else
+                {
+                    for (String name : names)
                     {
-                        File error = new File(folder, file.getName() + ".error");
-                        error.createNewFile();
-                        PrintWriter pw = new PrintWriter(error);
-                        pw.println("This file caused an error, it was most likely not formatted properly. Below is the original file, then the error report.");
-                        pw.println();
-                        pw.println(Files.toString(file, Charset.defaultCharset()));
-                        pw.println();
-                        pw.println();
-                        e.printStackTrace(pw);
-                        pw.flush();
-                        pw.close();
+                        File file = new File(folder, name);
+                        if (spool != null && name.equals(spool.getName())) spool.read(this);
+                        else if (FILTER.accept(file)) handle(file);
                     }
-                    file.delete();
-                    if (donation != null) process(donation, true, this);
                 }
-                doWait(1);
-            }
-            catch (IOException e)
-            {
-                Pay2Spawn.getLogger().error("IO error with FileSystemChecker!", e);
-                doWait(1);
             }
         }
+        finally
+        {
+            watcher.close();
+        }
+    }
+
+    /**
+     * Handle every file in the folder, oldest name first, and anything new in the spool.
+     */
+    private void scan() throws IOException
+    {
+        File[] files = folder.listFiles(FILTER);
+        if (files == null) throw new IOException("Can't list " + folder);
+        Arrays.sort(files);
+        for (File file : files) handle(file);
+        if (spool != null) spool.read(this);
+    }
+
+    private void handle(File file) throws IOException
+    {
+        Donation donation = null;
+        try (Reader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), Charsets.UTF_8)))
+        {
+            donation = GSON.fromJson(reader, Donation.class);
+        }
+        catch (FileNotFoundException e)
+        {
+            return; // Already handled in this batch
+        }
+        catch (Exception e)
+        {
+            File error = new File(folder, file.getName() + ".error");
+            error.createNewFile();
+            PrintWriter pw = new PrintWriter(error, Charsets.UTF_8.name());
+            pw.println("This file caused an error, it was most likely not formatted properly. Below is the original file, then the error report.");
+            pw.println();
+            pw.println(Files.toString(file, Charsets.UTF_8));
+            pw.println();
+            pw.println();
+            e.printStackTrace(pw);
+            pw.flush();
+            pw.close();
+        }
+        file.delete();
+        if (donation != null) process(donation, true, this);
     }
 }
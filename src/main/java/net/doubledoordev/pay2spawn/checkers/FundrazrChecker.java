@@ -36,7 +36,6 @@ import com.google.gson.JsonObject;
 import net.doubledoordev.pay2spawn.hud.DonationsBasedHudEntry;
 import net.doubledoordev.pay2spawn.hud.Hud;
 import net.doubledoordev.pay2spawn.util.Donation;
-import net.doubledoordev.pay2spawn.util.Helper;
 import net.minecraftforge.common.config.Configuration;
 
 import java.io.IOException;
@@ -49,7 +48,7 @@ import static net.doubledoordev.pay2spawn.util.Constants.JSON_PARSER;
 /**
  * @author Dries007
  */
-public class FundrazrChecker extends AbstractChecker implements Runnable
+public class FundrazrChecker extends PollingChecker
 {
     public static final FundrazrChecker INSTANCE = new FundrazrChecker();
     public static final String          NAME     = "Fundrazr";
@@ -60,11 +59,10 @@ public class FundrazrChecker extends AbstractChecker implements Runnable
     DonationsBasedHudEntry topDonationsBasedHudEntry, recentDonationsBasedHudEntry;
     String  id       = "";
     boolean enabled  = false;
-    int     interval = 10;
 
     private FundrazrChecker()
     {
-        super();
+        super(10);
     }
 
     @Override
@@ -79,7 +77,7 @@ public class FundrazrChecker extends AbstractChecker implements Runnable
         Hud.INSTANCE.set.add(topDonationsBasedHudEntry);
         Hud.INSTANCE.set.add(recentDonationsBasedHudEntry);
 
-        new Thread(this, getName()).start();
+        PollingEngine.INSTANCE.schedule(this);
     }
 
     @Override
@@ -95,6 +93,7 @@ public class FundrazrChecker extends AbstractChecker implements Runnable
 
         enabled = configuration.get(CAT, "enabled", enabled).getBoolean(enabled);
         interval = configuration.get(CAT, "interval", interval, "The time in between polls (in seconds).").getInt();
+        timeout = configuration.get(CAT, "timeout", timeout, "The connect and read timeout for polls (in seconds).").getInt();
         min_donation = configuration.get(CAT, "min_donation", min_donation, "Donations below this amount will only be added to statistics and will not spawn rewards").getDouble();
         id = configuration.get(CAT, "id", id, "Your campain ID").getString();
 
@@ -109,32 +108,44 @@ public class FundrazrChecker extends AbstractChecker implements Runnable
     }
 
     @Override
-    public void run()
+    protected URL getURL(boolean firstRun) throws IOException
     {
-        // Process any current donations from the API
-        processDonationAPI(true);
+        return new URL(String.format(URL_, id));
+    }
 
-        // Start the processing loop
-        while (true)
+    /**
+     * Process any donations from the API
+     *
+     * @param firstRun <code>boolean</code> used to identify previous donations that should not be processed.
+     */
+    @Override
+    protected void parse(String body, boolean firstRun)
+    {
+        JsonObject root = JSON_PARSER.parse(body).getAsJsonObject().getAsJsonObject("activities");
+        if (!root.has("entries")) return;
+        JsonElement element = root.get("entries");
+        if (element.isJsonObject())
         {
-            // Pause the configured wait period
-            doWait(interval);
+            Donation donation = getDonation(element.getAsJsonObject());
 
-            // Check for any new donations
-            processDonationAPI(false);
+            // Make sure we have a donation to work with and see if this is a first run
+            if (donation != null && firstRun)
+            {
+                // This is a first run so add to current list/done ids
+                topDonationsBasedHudEntry.add(donation);
+                doneIDs.add(donation.id);
+            }
+            else if (donation != null)
+            {
+                // We have a donation and this is a loop check so process the donation
+                process(donation, true, this);
+            }
         }
-    }
-
-    private void processDonationAPI(boolean firstRun)
-    {
-        try
+        else if (element.isJsonArray())
         {
-            JsonObject root = JSON_PARSER.parse(Helper.readUrl(new URL(String.format(URL_, id)))).getAsJsonObject().getAsJsonObject("activities");
-            if (!root.has("entries")) return;
-            JsonElement element = root.get("entries");
-            if (element.isJsonObject())
+            for (JsonElement jsonElement : element.getAsJsonArray())
             {
-                Donation donation = getDonation(element.getAsJsonObject());
+                Donation donation = getDonation(jsonElement.getAsJsonObject());
 
                 // Make sure we have a donation to work with and see if this is a first run
                 if (donation != null && firstRun)
@@ -149,30 +160,6 @@ public class FundrazrChecker extends AbstractChecker implements Runnable
                     process(donation, true, this);
                 }
             }
-            else if (element.isJsonArray())
-            {
-                for (JsonElement jsonElement : element.getAsJsonArray())
-                {
-                    Donation donation = getDonation(jsonElement.getAsJsonObject());
-
-                    // Make sure we have a donation to work with and see if this is a first run
-                    if (donation != null && firstRun)
-                    {
-                        // This is a first run so add to current list/done ids
-                        topDonationsBasedHudEntry.add(donation);
-                        doneIDs.add(donation.id);
-                    }
-                    else if (donation != null)
-                    {
-                        // We have a donation and this is a loop check so process the donation
-                        process(donation, true, this);
-                    }
-                }
-            }
-        }
-        catch (IOException e)
-        {
-            e.printStackTrace();
         }
     }
 
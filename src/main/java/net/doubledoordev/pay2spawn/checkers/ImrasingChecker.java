@@ -36,7 +36,6 @@ import com.google.gson.JsonObject;
 import net.doubledoordev.pay2spawn.hud.DonationsBasedHudEntry;
 import net.doubledoordev.pay2spawn.hud.Hud;
 import net.doubledoordev.pay2spawn.util.Donation;
-import net.doubledoordev.pay2spawn.util.Helper;
 import net.minecraftforge.common.config.Configuration;
 
 import java.io.IOException;
@@ -49,7 +48,7 @@ import static net.doubledoordev.pay2spawn.util.Constants.JSON_PARSER;
 /**
  * @author Dries007
  */
-public class ImrasingChecker extends AbstractChecker implements Runnable
+public class ImrasingChecker extends PollingChecker
 {
     public final static ImrasingChecker  INSTANCE          = new ImrasingChecker();
     public final static SimpleDateFormat ISO8601DATEFORMAT = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
@@ -61,10 +60,10 @@ public class ImrasingChecker extends AbstractChecker implements Runnable
     DonationsBasedHudEntry topDonationsBasedHudEntry, recentDonationsBasedHudEntry;
     String  APIKey   = "";
     boolean enabled  = false;
-    int     interval = 20;
 
     private ImrasingChecker()
     {
+        super(20);
     }
 
     @Override
@@ -79,7 +78,7 @@ public class ImrasingChecker extends AbstractChecker implements Runnable
         Hud.INSTANCE.set.add(topDonationsBasedHudEntry);
         Hud.INSTANCE.set.add(recentDonationsBasedHudEntry);
 
-        new Thread(this, getName()).start();
+        PollingEngine.INSTANCE.schedule(this);
     }
 
     @Override
@@ -96,6 +95,7 @@ public class ImrasingChecker extends AbstractChecker implements Runnable
         enabled = configuration.get(CAT, "enabled", enabled).getBoolean(enabled);
         APIKey = configuration.get(CAT, "APIKey", APIKey).getString();
         interval = configuration.get(CAT, "interval", interval, "The time in between polls (in seconds).").getInt();
+        timeout = configuration.get(CAT, "timeout", timeout, "The connect and read timeout for polls (in seconds).").getInt();
         min_donation = configuration.get(CAT, "min_donation", min_donation, "Donations below this amount will only be added to statistics and will not spawn rewards").getDouble();
 
         recentDonationsBasedHudEntry = new DonationsBasedHudEntry("recent" + NAME + ".txt", CAT + ".recentDonations", -1, 2, 5, "$name: $$amount", "-- Recent donations --", CheckerHandler.RECENT_DONATION_COMPARATOR);
@@ -118,53 +118,42 @@ public class ImrasingChecker extends AbstractChecker implements Runnable
     }
 
     @Override
-    public void run()
+    protected URL getURL(boolean firstRun) throws IOException
     {
-        // Process any current donations from the API
-        processDonationAPI(true);
-
-        // Start the processing loop
-        while (true)
-        {
-            // Pause the configured wait period
-            doWait(interval);
+        return new URL(firstRun ? URL + "?sort=amount" : URL);
+    }
 
-            // Check for any new donations
-            processDonationAPI(false);
-        }
+    @Override
+    protected String[][] getHeaders()
+    {
+        return new String[][]{{"authorization", String.format(HEADER, APIKey)}};
     }
 
     /**
-     * Connects to the API and attempt to process any donations
+     * Process any donations from the API
      *
      * @param firstRun <code>boolean</code> used to identify previous donations that should not be processed.
      */
-    private void processDonationAPI(boolean firstRun)
+    @Override
+    protected void parse(String body, boolean firstRun)
     {
-        try
+        JsonArray donations = JSON_PARSER.parse(body).getAsJsonArray();
+        for (JsonElement jsonElement : donations)
         {
-            JsonArray donations = JSON_PARSER.parse(Helper.readUrl(new URL(firstRun ? URL + "?sort=amount" : URL), new String[]{"authorization", String.format(HEADER, APIKey)})).getAsJsonArray();
-            for (JsonElement jsonElement : donations)
+            Donation donation = getDonation(jsonElement.getAsJsonObject());
+
+            // Make sure we have a donation to work with and see if this is a first run
+            if (donation != null && firstRun)
             {
-                Donation donation = getDonation(jsonElement.getAsJsonObject());
-
-                // Make sure we have a donation to work with and see if this is a first run
-                if (donation != null && firstRun)
-                {
-                    // This is a first run so add to current list/done ids
-                    topDonationsBasedHudEntry.add(donation);
-                    doneIDs.add(donation.id);
-                }
-                else if (donation != null)
-                {
-                    // We have a donation and this is a loop check so process the donation
-                    process(donation, true, this);
-                }
+                // This is a first run so add to current list/done ids
+                topDonationsBasedHudEntry.add(donation);
+                doneIDs.add(donation.id);
+            }
+            else if (donation != null)
+            {
+                // We have a donation and this is a loop check so process the donation
+                process(donation, true, this);
             }
-        }
-        catch (IOException e)
-        {
-            e.printStackTrace();
         }
     }
 
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2014, DoubleDoorDevelopment
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ *
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ *  Neither the name of the project nor the names of its
+ *   contributors may be used to endorse or promote products derived from
+ *   this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.doubledoordev.pay2spawn.checkers;
+
+import java.io.IOException;
+import java.net.URL;
+
+/**
+ * Base class for checkers that poll an HTTP API.
+ * They only declare where to poll and how to parse the response, the PollingEngine does the rest.
+ *
+ * @author Dries007
+ * @see net.doubledoordev.pay2spawn.checkers.PollingEngine
+ */
+public abstract class PollingChecker extends AbstractChecker
+{
+    public static final String[][] NO_HEADERS = new String[0][];
+
+    /**
+     * In seconds
+     */
+    protected int interval;
+    protected int timeout = 10;
+
+    protected PollingChecker(int interval)
+    {
+        this.interval = interval;
+    }
+
+    /**
+     * @param firstRun true for the warm-up poll, only done if the ID store doesn't know this checker yet
+     */
+    protected abstract URL getURL(boolean firstRun) throws IOException;
+
+    /**
+     * Called from a PollingEngine thread with the full response body. Only called if the response changed.
+     *
+     * @param firstRun <code>boolean</code> used to identify previous donations that should not be processed.
+     */
+    protected abstract void parse(String body, boolean firstRun) throws IOException;
+
+    /**
+     * Called for every request, so things like signatures can be time based.
+     */
+    protected String[][] getHeaders() throws IOException
+    {
+        return NO_HEADERS;
+    }
+
+    public int getInterval()
+    {
+        return interval;
+    }
+
+    public int getTimeout()
+    {
+        return timeout;
+    }
+}
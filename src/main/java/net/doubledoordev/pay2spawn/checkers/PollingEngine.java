@@ -0,0 +1,232 @@
+/*
+ * Copyright (c) 2014, DoubleDoorDevelopment
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ *
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ *  Neither the name of the project nor the names of its
+ *   contributors may be used to endorse or promote products derived from
+ *   this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.doubledoordev.pay2spawn.checkers;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.ByteStreams;
+import net.doubledoordev.pay2spawn.Pay2Spawn;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static net.doubledoordev.pay2spawn.util.Constants.RANDOM;
+
+/**
+ * One small scheduled thread pool polls every PollingChecker.
+ * Requests use connect/read timeouts, gzip and ETag/Last-Modified validators, and the response is always read
+ * to the end so HttpURLConnection can reuse the keep-alive connection.
+ * Failing providers back off exponentially (with jitter) instead of hammering the API or stalling a thread forever.
+ *
+ * @author Dries007
+ */
+public class PollingEngine
+{
+    public static final PollingEngine INSTANCE    = new PollingEngine();
+    public static final int           THREADS     = 3;
+    public static final int           MAX_BACKOFF = 300;
+    public static final String        USER_AGENT  = "Mozilla/5.0 (compatible; Pay2Spawn)";
+
+    private final ScheduledThreadPoolExecutor executor;
+
+    private PollingEngine()
+    {
+        executor = new ScheduledThreadPoolExecutor(THREADS, new ThreadFactory()
+        {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r)
+            {
+                Thread thread = new Thread(r, "P2S poller " + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    public void schedule(PollingChecker checker)
+    {
+        executor.execute(new Task(checker));
+    }
+
+    /**
+     * Plain GET with the engine's timeouts and gzip, for one-off requests from inside a parse.
+     */
+    public String fetch(URL url, String[][] headers, int timeout) throws IOException
+    {
+        return fetch(url, headers, timeout, null);
+    }
+
+    private String fetch(URL url, String[][] headers, int timeout, Validators validators) throws IOException
+    {
+        URLConnection connection = url.openConnection();
+        connection.setConnectTimeout(timeout * 1000);
+        connection.setReadTimeout(timeout * 1000);
+        connection.setUseCaches(false);
+        connection.setRequestProperty("Accept-Encoding", "gzip");
+        connection.setRequestProperty("User-Agent", USER_AGENT);
+        for (String[] header : headers) connection.setRequestProperty(header[0], header[1]);
+        if (validators != null)
+        {
+            if (validators.etag != null) connection.setRequestProperty("If-None-Match", validators.etag);
+            if (validators.lastModified != null) connection.setRequestProperty("If-Modified-Since", validators.lastModified);
+        }
+
+        if (connection instanceof HttpURLConnection)
+        {
+            HttpURLConnection http = (HttpURLConnection) connection;
+            int code = http.getResponseCode();
+            if (code == HttpURLConnection.HTTP_NOT_MODIFIED)
+            {
+                drain(http.getErrorStream());
+                drain(http.getInputStream());
+                return null;
+            }
+            if (code >= 400)
+            {
+                drain(http.getErrorStream());
+                throw new IOException("HTTP " + code + " from " + url.getHost());
+            }
+        }
+
+        InputStream in = connection.getInputStream();
+        try
+        {
+            if ("gzip".equalsIgnoreCase(connection.getContentEncoding())) in = new GZIPInputStream(in);
+            String body = new String(ByteStreams.toByteArray(in), getCharset(connection.getContentType()));
+            if (validators != null)
+            {
+                validators.etag = connection.getHeaderField("ETag");
+                validators.lastModified = connection.getHeaderField("Last-Modified");
+            }
+            return body;
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    private static void drain(InputStream in) throws IOException
+    {
+        if (in == null) return;
+        try
+        {
+            ByteStreams.copy(in, ByteStreams.nullOutputStream());
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    private static Charset getCharset(String contentType)
+    {
+        if (contentType != null)
+        {
+            int i = contentType.toLowerCase().indexOf("charset=");
+            if (i != -1)
+            {
+                try
+                {
+                    return Charset.forName(contentType.substring(i + 8).replace("\"", "").trim());
+                }
+                catch (Exception ignored)
+                {
+                }
+            }
+        }
+        return Charsets.UTF_8;
+    }
+
+    private static final class Validators
+    {
+        String etag, lastModified;
+    }
+
+    private final class Task implements Runnable
+    {
+        final PollingChecker checker;
+        final HashMap<String, Validators> validators = new HashMap<>();
+        int failures;
+
+        Task(PollingChecker checker)
+        {
+            this.checker = checker;
+        }
+
+        @Override
+        public void run()
+        {
+            try
+            {
+                boolean firstRun = !checker.doneIDs.isSeeded();
+                URL url = checker.getURL(firstRun);
+                Validators v = validators.get(url.toString());
+                if (v == null) validators.put(url.toString(), v = new Validators());
+                String body = fetch(url, checker.getHeaders(), checker.getTimeout(), v);
+                if (body != null) checker.parse(body, firstRun);
+                // Every successful poll refreshes the marker, so it means "polled within the TTL", like the stored IDs
+                checker.doneIDs.setSeeded();
+                failures = 0;
+            }
+            catch (Exception e)
+            {
+                failures++;
+                Pay2Spawn.getLogger().warn("Polling " + checker.getName() + " failed " + failures + " time(s) in a row: " + e);
+            }
+            finally
+            {
+                executor.schedule(this, getDelay(), TimeUnit.MILLISECONDS);
+            }
+        }
+
+        /**
+         * The normal interval, doubled for every failure in a row up to MAX_BACKOFF, +/- 20% jitter.
+         */
+        private long getDelay()
+        {
+            long delay = checker.getInterval() * 1000L;
+            if (failures > 0) delay = Math.min(delay << Math.min(failures, 10), MAX_BACKOFF * 1000L);
+            return (long) (delay * (0.8 + RANDOM.nextDouble() * 0.4));
+        }
+    }
+}
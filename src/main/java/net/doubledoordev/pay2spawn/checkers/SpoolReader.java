@@ -0,0 +1,115 @@
+package net.doubledoordev.pay2spawn.checkers;
+
+import com.google.common.base.Charsets;
+import net.doubledoordev.pay2spawn.Pay2Spawn;
+import net.doubledoordev.pay2spawn.util.Donation;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import static net.doubledoordev.pay2spawn.util.Constants.GSON;
+
+/**
+ * Tails an append-only spool file with one donation json object per line.
+ * The byte offset of the first unread line is kept in a side file, so a restart continues exactly where it stopped.
+ * A line is only read once its newline is there, half written lines are left for the next pass.
+ *
+ * @author Dries007
+ */
+class SpoolReader
+{
+    static final int BUFFER = 64 * 1024;
+
+    private final File             file;
+    private final RandomAccessFile offsetFile;
+    private final ByteBuffer       buffer = ByteBuffer.allocateDirect(BUFFER);
+    private byte[] line = new byte[256];
+    private long   offset;
+
+    SpoolReader(File file) throws IOException
+    {
+        this.file = file;
+        this.offsetFile = new RandomAccessFile(new File(file.getParentFile(), file.getName() + ".offset"), "rw");
+        this.offset = offsetFile.length() >= 8 ? offsetFile.readLong() : 0;
+    }
+
+    String getName()
+    {
+        return file.getName();
+    }
+
+    /**
+     * Read all complete lines that were appended since last time.
+     *
+     * @return the number of donations handed to the checker
+     */
+    int read(FileSystemChecker checker) throws IOException
+    {
+        if (!file.exists()) return 0;
+        int count = 0;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+        {
+            long size = channel.size();
+            if (size < offset)
+            {
+                Pay2Spawn.getLogger().warn(file.getName() + " got smaller, starting from the top.");
+                offset = 0;
+            }
+            if (size == offset) return 0;
+
+            long position = offset;
+            int lineLength = 0;
+            while (position < size)
+            {
+                buffer.clear();
+                int read = channel.read(buffer, position);
+                if (read <= 0) break;
+                buffer.flip();
+                while (buffer.hasRemaining())
+                {
+                    byte b = buffer.get();
+                    position++;
+                    if (b == '\n')
+                    {
+                        if (handle(checker, lineLength)) count++;
+                        lineLength = 0;
+                        offset = position;
+                    }
+                    else
+                    {
+                        if (lineLength == line.length) line = Arrays.copyOf(line, line.length * 2);
+                        line[lineLength++] = b;
+                    }
+                }
+            }
+        }
+        offsetFile.seek(0);
+        offsetFile.writeLong(offset);
+        return count;
+    }
+
+    private boolean handle(FileSystemChecker checker, int length)
+    {
+        if (length > 0 && line[length - 1] == '\r') length--;
+        if (length == 0) return false;
+        String json = new String(line, 0, length, Charsets.UTF_8);
+        try
+        {
+            Donation donation = GSON.fromJson(json, Donation.class);
+            if (donation == null) return false;
+            checker.process(donation, true, checker);
+            return true;
+        }
+        catch (Exception e)
+        {
+            Pay2Spawn.getLogger().warn("Skipping bad line in " + file.getName() + " at byte " + offset + ": " + json, e);
+            return false;
+        }
+    }
+
+}
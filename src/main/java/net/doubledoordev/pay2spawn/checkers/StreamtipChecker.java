@@ -36,7 +36,6 @@ import com.google.gson.JsonObject;
 import net.doubledoordev.pay2spawn.hud.DonationsBasedHudEntry;
 import net.doubledoordev.pay2spawn.hud.Hud;
 import net.doubledoordev.pay2spawn.util.Donation;
-import net.doubledoordev.pay2spawn.util.Helper;
 import net.doubledoordev.pay2spawn.util.JsonNBTHelper;
 import net.minecraftforge.common.config.Configuration;
 
@@ -54,7 +53,7 @@ import static net.doubledoordev.pay2spawn.util.Constants.JSON_PARSER;
  *
  * @author Dries007
  */
-public class StreamtipChecker extends AbstractChecker implements Runnable
+public class StreamtipChecker extends PollingChecker
 {
     public final static StreamtipChecker INSTANCE = new StreamtipChecker();
     public final static String           NAME     = "streamtip";
@@ -65,12 +64,11 @@ public class StreamtipChecker extends AbstractChecker implements Runnable
 
     String ClientID = "", ClientAccessToken = "";
     boolean          enabled  = false;
-    int              interval = 20;
     SimpleDateFormat sdf      = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.S'Z'");
 
     private StreamtipChecker()
     {
-        super();
+        super(20);
     }
 
     @Override
@@ -85,7 +83,7 @@ public class StreamtipChecker extends AbstractChecker implements Runnable
         Hud.INSTANCE.set.add(topDonationsBasedHudEntry);
         Hud.INSTANCE.set.add(recentDonationsBasedHudEntry);
 
-        new Thread(this, getName()).start();
+        PollingEngine.INSTANCE.schedule(this);
     }
 
     @Override
@@ -103,6 +101,7 @@ public class StreamtipChecker extends AbstractChecker implements Runnable
         ClientID = configuration.get(CAT, "ClientID", ClientID).getString();
         ClientAccessToken = configuration.get(CAT, "ClientAccessToken", ClientAccessToken).getString();
         interval = configuration.get(CAT, "interval", interval, "The time in between polls (in seconds).").getInt();
+        timeout = configuration.get(CAT, "timeout", timeout, "The connect and read timeout for polls (in seconds).").getInt();
         min_donation = configuration.get(CAT, "min_donation", min_donation, "Donations below this amount will only be added to statistics and will not spawn rewards").getDouble();
 
         recentDonationsBasedHudEntry = new DonationsBasedHudEntry("recent" + NAME + ".txt", CAT + ".recentDonations", -1, 2, 5, "$name: $$amount", "-- Recent donations --", CheckerHandler.RECENT_DONATION_COMPARATOR);
@@ -116,29 +115,35 @@ public class StreamtipChecker extends AbstractChecker implements Runnable
     }
 
     @Override
-    public void run()
+    protected URL getURL(boolean firstRun) throws IOException
     {
-        try
+        if (firstRun) return new URL(URL + "client_id=" + ClientID + "&access_token=" + ClientAccessToken + "&sort_by=amount&limit=" + topDonationsBasedHudEntry.getAmount());
+        return new URL(URL + "client_id=" + ClientID + "&access_token=" + ClientAccessToken + "&sort_by=date&limit=5");
+    }
+
+    @Override
+    protected void parse(String body, boolean firstRun) throws IOException
+    {
+        JsonObject root = JSON_PARSER.parse(body).getAsJsonObject();
+        if (root.getAsJsonPrimitive("status").getAsInt() == 200)
         {
-            JsonObject root = JSON_PARSER.parse(Helper.readUrl(new URL(URL + "client_id=" + ClientID + "&access_token=" + ClientAccessToken + "&sort_by=amount&limit=" + topDonationsBasedHudEntry.getAmount()))).getAsJsonObject();
-            if (root.getAsJsonPrimitive("status").getAsInt() == 200)
+            JsonArray donations = root.getAsJsonArray("tips");
+            for (JsonElement jsonElement : donations)
             {
-                JsonArray donations = root.getAsJsonArray("tips");
-                for (JsonElement jsonElement : donations)
+                Donation donation = getDonation(JsonNBTHelper.fixNulls(jsonElement.getAsJsonObject()));
+                if (firstRun)
                 {
-                    Donation donation = getDonation(JsonNBTHelper.fixNulls(jsonElement.getAsJsonObject()));
                     topDonationsBasedHudEntry.add(donation);
                     doneIDs.add(donation.id);
                 }
+                else process(donation, true, this);
             }
         }
-        catch (IOException e)
-        {
-            e.printStackTrace();
-        }
-        try
+
+        if (firstRun)
         {
-            JsonObject root = JSON_PARSER.parse(Helper.readUrl(new URL(URL + "client_id=" + ClientID + "&access_token=" + ClientAccessToken + "&sort_by=date&limit=" + recentDonationsBasedHudEntry.getAmount()))).getAsJsonObject();
+            // The recent list is sorted differently, so the warm-up needs a second request
+            root = JSON_PARSER.parse(PollingEngine.INSTANCE.fetch(new URL(URL + "client_id=" + ClientID + "&access_token=" + ClientAccessToken + "&sort_by=date&limit=" + recentDonationsBasedHudEntry.getAmount()), NO_HEADERS, timeout)).getAsJsonObject();
             if (root.getAsJsonPrimitive("status").getAsInt() == 200)
             {
                 JsonArray donations = root.getAsJsonArray("tips");
@@ -150,31 +155,6 @@ public class StreamtipChecker extends AbstractChecker implements Runnable
                 }
             }
         }
-        catch (IOException e)
-        {
-            e.printStackTrace();
-        }
-
-        while (true)
-        {
-            doWait(interval);
-            try
-            {
-                JsonObject root = JSON_PARSER.parse(Helper.readUrl(new URL(URL + "client_id=" + ClientID + "&access_token=" + ClientAccessToken + "&sort_by=date&limit=5"))).getAsJsonObject();
-                if (root.getAsJsonPrimitive("status").getAsInt() == 200)
-                {
-                    JsonArray donations = root.getAsJsonArray("tips");
-                    for (JsonElement jsonElement : donations)
-                    {
-                        process(getDonation(JsonNBTHelper.fixNulls(jsonElement.getAsJsonObject())), true, this);
-                    }
-                }
-            }
-            catch (IOException e)
-            {
-                e.printStackTrace();
-            }
-        }
     }
 
     private Donation getDonation(JsonObject jsonObject)
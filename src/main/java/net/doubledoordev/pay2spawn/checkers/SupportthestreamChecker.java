@@ -36,7 +36,6 @@ import com.google.gson.JsonObject;
 import net.doubledoordev.pay2spawn.hud.DonationsBasedHudEntry;
 import net.doubledoordev.pay2spawn.hud.Hud;
 import net.doubledoordev.pay2spawn.util.Donation;
-import net.doubledoordev.pay2spawn.util.Helper;
 import net.minecraftforge.common.config.Configuration;
 
 import java.io.IOException;
@@ -51,7 +50,7 @@ import static net.doubledoordev.pay2spawn.util.Constants.JSON_PARSER;
  *
  * @author Dries007
  */
-public class SupportthestreamChecker extends AbstractChecker implements Runnable
+public class SupportthestreamChecker extends PollingChecker
 {
     /**
      * 1: API key
@@ -65,11 +64,11 @@ public class SupportthestreamChecker extends AbstractChecker implements Runnable
     public final static String                  CAT        = BASECAT_TRACKERS + '.' + NAME;
     DonationsBasedHudEntry topDonationsBasedHudEntry, recentDonationsBasedHudEntry;
     boolean enabled  = false;
-    int     interval = 5;
     String  APIKey   = "";
 
     private SupportthestreamChecker()
     {
+        super(5);
     }
 
     @Override
@@ -84,7 +83,7 @@ public class SupportthestreamChecker extends AbstractChecker implements Runnable
         Hud.INSTANCE.set.add(topDonationsBasedHudEntry);
         Hud.INSTANCE.set.add(recentDonationsBasedHudEntry);
 
-        new Thread(this, getName()).start();
+        PollingEngine.INSTANCE.schedule(this);
     }
 
     @Override
@@ -101,6 +100,7 @@ public class SupportthestreamChecker extends AbstractChecker implements Runnable
         enabled = configuration.get(CAT, "enabled", enabled).getBoolean(enabled);
         APIKey = configuration.get(CAT, "APIKey", APIKey).getString();
         interval = configuration.get(CAT, "interval", interval, "The time in between polls minimum 5 (in seconds).").getInt();
+        timeout = configuration.get(CAT, "timeout", timeout, "The connect and read timeout for polls (in seconds).").getInt();
         min_donation = configuration.get(CAT, "min_donation", min_donation, "Donations below this amount will only be added to statistics and will not spawn rewards").getDouble();
 
         recentDonationsBasedHudEntry = new DonationsBasedHudEntry("recent" + NAME + ".txt", CAT + ".recentDonations", -1, 2, 5, "$name: $$amount", "-- Recent donations --", CheckerHandler.RECENT_DONATION_COMPARATOR);
@@ -114,53 +114,36 @@ public class SupportthestreamChecker extends AbstractChecker implements Runnable
     }
 
     @Override
-    public void run()
+    protected URL getURL(boolean firstRun) throws IOException
     {
-        // Process any current donations from the API
-        processDonationAPI(true);
-
-        // Start the processing loop
-        while (true)
-        {
-            // Pause the configured wait period
-            doWait(interval);
-
-            // Check for any new donations
-            processDonationAPI(false);
-        }
+        return new URL(String.format(URL, APIKey));
     }
 
     /**
-     * Connects to the API and attempt to process any donations
+     * Process any donations from the API
      *
      * @param firstRun <code>boolean</code> used to identify previous donations that should not be processed.
      */
-    private void processDonationAPI(boolean firstRun)
+    @Override
+    protected void parse(String body, boolean firstRun)
     {
-        try
+        JsonArray donations = JSON_PARSER.parse(body).getAsJsonArray();
+        for (JsonElement jsonElement : donations)
         {
-            JsonArray donations = JSON_PARSER.parse(Helper.readUrl(new URL(String.format(URL, APIKey)))).getAsJsonArray();
-            for (JsonElement jsonElement : donations)
+            Donation donation = getDonation(jsonElement.getAsJsonObject());
+            if (donation == null) continue;
+            // Make sure we have a donation to work with and see if this is a first run
+            if (firstRun)
             {
-                Donation donation = getDonation(jsonElement.getAsJsonObject());
-                if (donation == null) continue;
-                // Make sure we have a donation to work with and see if this is a first run
-                if (firstRun)
-                {
-                    // This is a first run so add to current list/done ids
-                    topDonationsBasedHudEntry.add(donation);
-                    doneIDs.add(donation.id);
-                }
-                else
-                {
-                    // We have a donation and this is a loop check so process the donation
-                    process(donation, true, this);
-                }
+                // This is a first run so add to current list/done ids
+                topDonationsBasedHudEntry.add(donation);
+                doneIDs.add(donation.id);
+            }
+            else
+            {
+                // We have a donation and this is a loop check so process the donation
+                process(donation, true, this);
             }
-        }
-        catch (IOException e)
-        {
-            e.printStackTrace();
         }
     }
 
@@ -30,49 +30,65 @@
 
 package net.doubledoordev.pay2spawn.checkers;
 
-import com.google.gson.JsonElement;
+import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 import net.doubledoordev.pay2spawn.Pay2Spawn;
 import net.doubledoordev.pay2spawn.hud.DonationsBasedHudEntry;
 import net.doubledoordev.pay2spawn.hud.Hud;
 import net.doubledoordev.pay2spawn.util.Donation;
-import net.doubledoordev.pay2spawn.util.Helper;
 import net.minecraftforge.common.config.Configuration;
 
+import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
-import java.util.HashMap;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static net.doubledoordev.pay2spawn.util.Constants.BASECAT_TRACKERS;
 import static net.doubledoordev.pay2spawn.util.Constants.JSON_PARSER;
 
 /**
  * For tracking twitch subs
+ * Subs are requested newest first, so normally only the first page is needed: paging stops at the first sub
+ * that is not newer than the newest one from the last poll. A full sync (all pages in parallel) is only done
+ * on start, after a reset and every FULL_SYNC_EVERY polls to forget unsubs.
  *
  * @author Dries007
  */
-public class TwitchChecker extends AbstractChecker implements Runnable
+public class TwitchChecker extends PollingChecker
 {
-    public static final TwitchChecker INSTANCE = new TwitchChecker();
-    public final static String        NAME     = "twitchsubs";
-    public final static String        CAT      = BASECAT_TRACKERS + '.' + NAME;
-    HashMap<String, String> subs = new HashMap<>();
+    public static final TwitchChecker INSTANCE        = new TwitchChecker();
+    public final static String        NAME            = "twitchsubs";
+    public final static String        CAT             = BASECAT_TRACKERS + '.' + NAME;
+    public final static int           PAGE_SIZE       = 100;
+    public final static int           FAN_OUT         = 4;
+    public final static int           FULL_SYNC_EVERY = 90;
+    private static ExecutorService pagePool;
 
     DonationsBasedHudEntry recentDonationsBasedHudEntry;
 
-    String  APIKey   = "";
-    boolean enabled  = false;
-    int     interval = 20;
-    double  amount   = 5;
+    String  APIKey      = "";
+    boolean enabled     = false;
+    boolean incremental = true;
+    double  amount      = 5;
     URL url;
-    boolean firstrun   = true;
     boolean addToTotal = true;
     String  note       = "I subscribed on Twitch.tv!";
 
+    /**
+     * Sorted, only touched from the polling thread
+     */
+    private long[] known;
+    private String watermark;
+    private int    polls;
+    private volatile boolean reset;
+
     private TwitchChecker()
     {
-        super();
+        super(20);
     }
 
     @Override
@@ -86,7 +102,7 @@ public class TwitchChecker extends AbstractChecker implements Runnable
     {
         Hud.INSTANCE.set.add(recentDonationsBasedHudEntry);
 
-        new Thread(this, getName()).start();
+        PollingEngine.INSTANCE.schedule(this);
     }
 
     @Override
@@ -103,6 +119,8 @@ public class TwitchChecker extends AbstractChecker implements Runnable
         enabled = configuration.get(CAT, "enabled", enabled).getBoolean(enabled);
         APIKey = configuration.get(CAT, "APIKey", APIKey, "Get this from http://dries007.net/ccm/p2s/").getString();
         interval = configuration.get(CAT, "interval", interval, "The time in between polls (in seconds).").getInt();
+        timeout = configuration.get(CAT, "timeout", timeout, "The connect and read timeout for polls (in seconds).").getInt();
+        incremental = configuration.get(CAT, "incremental", incremental, "Only fetch new subs instead of the full list every poll. Turn off if subs get missed.").getBoolean(incremental);
         amount = configuration.get(CAT, "amount", amount, "The amount of currency a sub counts for.").getDouble(amount);
         note = configuration.get(CAT, "note", note, "The note attached to the 'fake' donation.").getString();
         addToTotal = configuration.get(CAT, "addToTotal", addToTotal, "If false, subs don't count towards the total amount donated.").getBoolean();
@@ -111,7 +129,7 @@ public class TwitchChecker extends AbstractChecker implements Runnable
 
         try
         {
-            url = new URL("https://api.twitch.tv/kraken/channels/" + Pay2Spawn.getConfig().channel + "/subscriptions?limit=100&oauth_token=" + APIKey);
+            url = new URL("https://api.twitch.tv/kraken/channels/" + Pay2Spawn.getConfig().channel + "/subscriptions?limit=" + PAGE_SIZE + "&direction=desc&oauth_token=" + APIKey);
         }
         catch (MalformedURLException e)
         {
@@ -132,50 +150,181 @@ public class TwitchChecker extends AbstractChecker implements Runnable
     }
 
     @Override
-    public void run()
+    protected URL getURL(boolean firstRun) throws IOException
     {
+        return url;
+    }
+
+    @Override
+    protected void parse(String body, boolean firstRun) throws IOException
+    {
+        Page first = new Page(JSON_PARSER.parse(body).getAsJsonObject());
+        if (reset)
+        {
+            reset = false;
+            known = new long[0];
+            watermark = null;
+        }
+
+        if (known == null) fullSync(first, false);
+        else if (!incremental || watermark == null || ++polls >= FULL_SYNC_EVERY) fullSync(first, true);
+        else incrementalSync(first);
+    }
+
+    /**
+     * Walk pages newest first until we hit a sub that was already there last poll.
+     */
+    private void incrementalSync(Page page) throws IOException
+    {
+        long[] added = new long[0];
+        String newest = page.created.length == 0 ? watermark : page.created[0];
+        int offset = 0;
         while (true)
         {
-            try
+            int i = 0;
+            for (; i < page.ids.length; i++)
+            {
+                if (page.created[i].compareTo(watermark) <= 0) break;
+                if (Arrays.binarySearch(known, page.ids[i]) < 0) process(new Donation(String.valueOf(page.ids[i]), amount, new Date().getTime(), page.names[i], note), true, this);
+            }
+            added = concat(added, Arrays.copyOf(page.ids, i));
+            offset += PAGE_SIZE;
+            if (i < page.ids.length || offset >= page.total) break;
+            page = fetchPage(offset);
+        }
+        known = merge(known, added);
+        watermark = newest;
+    }
+
+    /**
+     * Fetch all pages with a bounded fan out and replace the known set.
+     *
+     * @param emit if true, subs not in the known set are processed
+     */
+    private void fullSync(Page first, boolean emit) throws IOException
+    {
+        ArrayList<Future<Page>> futures = new ArrayList<>();
+        for (int offset = PAGE_SIZE; offset < first.total; offset += PAGE_SIZE)
+        {
+            final int pageOffset = offset;
+            futures.add(getPagePool().submit(new Callable<Page>()
             {
-                HashMap<String, String> newSubs = new HashMap<>();
-                JsonObject root = JSON_PARSER.parse(Helper.readUrl(url)).getAsJsonObject();
-                parseSubs(newSubs, root);
-                int total = root.getAsJsonPrimitive("_total").getAsInt();
-                for (int offset = 100; offset < total; offset += 100)
+                @Override
+                public Page call() throws Exception
                 {
-                    root = JSON_PARSER.parse(Helper.readUrl(new URL(url.toString() + "&offset=" + offset))).getAsJsonObject();
-                    parseSubs(newSubs, root);
+                    return fetchPage(pageOffset);
                 }
+            }));
+        }
+
+        ArrayList<Page> pages = new ArrayList<>(futures.size() + 1);
+        pages.add(first);
+        try
+        {
+            for (Future<Page> future : futures) pages.add(future.get());
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+        catch (ExecutionException e)
+        {
+            for (Future<Page> future : futures) future.cancel(true);
+            throw new IOException(e.getCause());
+        }
 
-                for (String sub : newSubs.keySet())
+        long[] all = new long[0];
+        for (Page page : pages)
+        {
+            if (emit)
+            {
+                for (int i = 0; i < page.ids.length; i++)
                 {
-                    if (!subs.containsKey(sub) && !firstrun)
-                    {
-                        process(new Donation(sub, amount, new Date().getTime(), newSubs.get(sub), note), true, this);
-                    }
+                    if (Arrays.binarySearch(known, page.ids[i]) < 0) process(new Donation(String.valueOf(page.ids[i]), amount, new Date().getTime(), page.names[i], note), true, this);
                 }
-                subs = newSubs;
-                firstrun = false;
             }
-            catch (Exception e)
-            {
-                e.printStackTrace();
-            }
-            doWait(interval);
+            all = concat(all, page.ids);
         }
+        known = merge(all, new long[0]);
+        watermark = first.created.length == 0 ? null : first.created[0];
+        polls = 0;
     }
 
-    private void parseSubs(HashMap<String, String> subs, JsonObject object)
+    private Page fetchPage(int offset) throws IOException
     {
-        for (JsonElement sub : object.getAsJsonArray("subscriptions"))
+        return new Page(JSON_PARSER.parse(PollingEngine.INSTANCE.fetch(new URL(url.toString() + "&offset=" + offset), NO_HEADERS, timeout)).getAsJsonObject());
+    }
+
+    private static synchronized ExecutorService getPagePool()
+    {
+        if (pagePool == null)
         {
-            subs.put(sub.getAsJsonObject().getAsJsonObject("user").get("_id").getAsString(), sub.getAsJsonObject().getAsJsonObject("user").get("display_name").getAsString());
+            pagePool = Executors.newFixedThreadPool(FAN_OUT, new ThreadFactory()
+            {
+                private final AtomicInteger count = new AtomicInteger();
+
+                @Override
+                public Thread newThread(Runnable r)
+                {
+                    Thread thread = new Thread(r, NAME + " pager " + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
         }
+        return pagePool;
+    }
+
+    private static long[] concat(long[] a, long[] b)
+    {
+        long[] out = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, out, a.length, b.length);
+        return out;
+    }
+
+    /**
+     * @return a sorted array without duplicates
+     */
+    private static long[] merge(long[] a, long[] b)
+    {
+        long[] all = concat(a, b);
+        Arrays.sort(all);
+        int size = 0;
+        for (int i = 0; i < all.length; i++) if (size == 0 || all[size - 1] != all[i]) all[size++] = all[i];
+        return Arrays.copyOf(all, size);
     }
 
     public void reset()
     {
-        subs.clear();
+        reset = true;
+    }
+
+    /**
+     * One page of subs, in API order (newest first)
+     */
+    private static final class Page
+    {
+        final int      total;
+        final long[]   ids;
+        final String[] names;
+        final String[] created;
+
+        Page(JsonObject root)
+        {
+            total = root.getAsJsonPrimitive("_total").getAsInt();
+            JsonArray subs = root.getAsJsonArray("subscriptions");
+            ids = new long[subs.size()];
+            names = new String[subs.size()];
+            created = new String[subs.size()];
+            for (int i = 0; i < ids.length; i++)
+            {
+                JsonObject sub = subs.get(i).getAsJsonObject();
+                JsonObject user = sub.getAsJsonObject("user");
+                ids[i] = user.get("_id").getAsLong();
+                names[i] = user.get("display_name").getAsString();
+                created[i] = sub.get("created_at").getAsString();
+            }
+        }
     }
 }
@@ -35,7 +35,6 @@ import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import net.doubledoordev.pay2spawn.hud.DonationsBasedHudEntry;
 import net.doubledoordev.pay2spawn.util.Donation;
-import net.doubledoordev.pay2spawn.util.Helper;
 import net.minecraftforge.common.config.Configuration;
 
 import java.io.IOException;
@@ -50,7 +49,7 @@ import static net.doubledoordev.pay2spawn.util.Constants.JSON_PARSER;
  *
  * @author Dries007
  */
-public class TwitchalertsChecker extends AbstractChecker implements Runnable
+public class TwitchalertsChecker extends PollingChecker
 {
     public final static SimpleDateFormat SIMPLE_DATE_FORMAT = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'");
     public final static TwitchalertsChecker INSTANCE = new TwitchalertsChecker();
@@ -62,11 +61,10 @@ public class TwitchalertsChecker extends AbstractChecker implements Runnable
 
     String APIKey = "";
     boolean enabled  = false;
-    int     interval = 20;
 
     private TwitchalertsChecker()
     {
-        super();
+        super(20);
     }
 
     @Override
@@ -78,7 +76,7 @@ public class TwitchalertsChecker extends AbstractChecker implements Runnable
     @Override
     public void init()
     {
-        new Thread(this, getName()).start();
+        PollingEngine.INSTANCE.schedule(this);
     }
 
     @Override
@@ -96,6 +94,7 @@ public class TwitchalertsChecker extends AbstractChecker implements Runnable
 
         APIKey = configuration.get(CAT, "APIKey", APIKey).getString();
         interval = configuration.get(CAT, "interval", interval, "The time in between polls minimum 20 (in seconds).").getInt();
+        timeout = configuration.get(CAT, "timeout", timeout, "The connect and read timeout for polls (in seconds).").getInt();
         min_donation = configuration.get(CAT, "min_donation", min_donation, "Donations below this amount will only be added to statistics and will not spawn rewards").getDouble();
         URL = configuration.get(CAT, "url", URL, "Donation Tracker API end point string").getString();
 
@@ -119,55 +118,44 @@ public class TwitchalertsChecker extends AbstractChecker implements Runnable
     }
 
     @Override
-    public void run()
+    protected URL getURL(boolean firstRun) throws IOException
     {
-        // Process any current donations from the API
-        processDonationAPI(true);
-
-        // Start the processing loop
-        while (true)
-        {
-            // Pause the configured wait period
-            doWait(interval);
+        return new URL(String.format(URL, APIKey));
+    }
 
-            // Check for any new donations
-            processDonationAPI(false);
-        }
+    @Override
+    protected String[][] getHeaders()
+    {
+        return new String[][]{{"User-Agent", "Mozilla/5.0 (X11; Linux x86_64; rv:12.0) Gecko/20100101 Firefox/21.0"}};
     }
 
     /**
-     * Connects to the API and attempt to process any donations
+     * Process any donations from the API
      *
      * @param firstRun <code>boolean</code> used to identify previous donations that should not be processed.
      */
-    private void processDonationAPI(boolean firstRun)
+    @Override
+    protected void parse(String body, boolean firstRun)
     {
-        try
+        JsonObject root = JSON_PARSER.parse(body).getAsJsonObject();
+        JsonArray donations = root.getAsJsonArray("donations");
+        for (JsonElement jsonElement : donations)
         {
-            JsonObject root = JSON_PARSER.parse(Helper.readUrl(new URL(String.format(URL, APIKey)), new String[] {"User-Agent", "Mozilla/5.0 (X11; Linux x86_64; rv:12.0) Gecko/20100101 Firefox/21.0"})).getAsJsonObject();
-            JsonArray donations = root.getAsJsonArray("donations");
-            for (JsonElement jsonElement : donations)
+            Donation donation = getDonation(jsonElement.getAsJsonObject());
+
+            // Make sure we have a donation to work with and see if this is a first run
+            if (donation != null && firstRun == true)
             {
-                Donation donation = getDonation(jsonElement.getAsJsonObject());
-
-                // Make sure we have a donation to work with and see if this is a first run
-                if (donation != null && firstRun == true)
-                {
-                    // This is a first run so add to current list/done ids
-                    topDonationsBasedHudEntry.add(donation);
-                    recentDonationsBasedHudEntry.add(donation);
-                    doneIDs.add(donation.id);
-                }
-                else if (donation != null)
-                {
-                    // We have a donation and this is a loop check so process the donation
-                    process(donation, true, this);
-                }
+                // This is a first run so add to current list/done ids
+                topDonationsBasedHudEntry.add(donation);
+                recentDonationsBasedHudEntry.add(donation);
+                doneIDs.add(donation.id);
+            }
+            else if (donation != null)
+            {
+                // We have a donation and this is a loop check so process the donation
+                process(donation, true, this);
             }
-        }
-        catch (IOException e)
-        {
-            e.printStackTrace();
         }
     }
 
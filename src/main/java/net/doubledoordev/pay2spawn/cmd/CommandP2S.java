@@ -33,11 +33,14 @@ package net.doubledoordev.pay2spawn.cmd;
 import com.google.common.base.Throwables;
 import net.doubledoordev.pay2spawn.Pay2Spawn;
 import net.doubledoordev.pay2spawn.checkers.CheckerHandler;
+import net.doubledoordev.pay2spawn.checkers.DonationPipeline;
 import net.doubledoordev.pay2spawn.checkers.TwitchChecker;
 import net.doubledoordev.pay2spawn.configurator.ConfiguratorManager;
 import net.doubledoordev.pay2spawn.configurator.HTMLGenerator;
+import net.doubledoordev.pay2spawn.util.Analytics;
 import net.doubledoordev.pay2spawn.util.Helper;
 import net.doubledoordev.pay2spawn.util.Statistics;
+import net.doubledoordev.pay2spawn.util.Tracing;
 import net.minecraft.command.CommandBase;
 import net.minecraft.command.ICommandSender;
 import net.minecraft.entity.player.EntityPlayer;
@@ -46,8 +49,10 @@ import net.minecraft.util.EnumChatFormatting;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Useful command when dealing with setting up the JSON file
@@ -143,6 +148,47 @@ public class CommandP2S extends CommandBase
                     Statistics.addToDonationAmount(amount);
                 }
                 break;
+            case "pipeline":
+                Helper.msg(EnumChatFormatting.GOLD + "[P2S] Queue depth: " + DonationPipeline.INSTANCE.getQueueDepth() + "/" + DonationPipeline.INSTANCE.getCapacity() + ", stalls: " + DonationPipeline.INSTANCE.getStalls());
+                Helper.msg(EnumChatFormatting.GOLD + "[P2S] " + DonationPipeline.INSTANCE.wait);
+                Helper.msg(EnumChatFormatting.GOLD + "[P2S] " + DonationPipeline.INSTANCE.process);
+                break;
+            case "stats":
+            {
+                int minutes = args.length > 1 ? CommandBase.parseIntBounded(sender, args[1], 1, 30 * 24 * 60) : 60;
+                Helper.msg(EnumChatFormatting.GOLD + "[P2S] Last " + minutes + " minutes:");
+                for (Analytics.Kind kind : Analytics.Kind.values())
+                {
+                    Analytics.Summary summary = Analytics.INSTANCE.query(kind, TimeUnit.MINUTES.toMillis(minutes));
+                    Helper.msg(EnumChatFormatting.GOLD + String.format("%s: %d (%.2f/min), total %.2f, median %.2f, p95 %.2f, latency median %.0f ms, p95 %.0f ms", kind.name().toLowerCase(), summary.count, summary.getRate(), summary.sum, summary.getValuePercentile(50), summary.getValuePercentile(95), summary.getLatencyPercentile(50), summary.getLatencyPercentile(95)));
+                    for (Map.Entry<String, double[]> entry : summary.getTop(3))
+                    {
+                        Helper.msg(EnumChatFormatting.YELLOW + String.format("  %s: %.0f (%.2f)", entry.getKey(), entry.getValue()[0], entry.getValue()[1]));
+                    }
+                }
+                break;
+            }
+            case "debug":
+                if (args.length > 1 && args[1].equalsIgnoreCase("reset"))
+                {
+                    Tracing.reset();
+                    Helper.msg(EnumChatFormatting.GOLD + "[P2S] Traces have been reset.");
+                }
+                else if (args.length > 1 && args[1].equalsIgnoreCase("log"))
+                {
+                    Tracing.log = !Tracing.log;
+                    Helper.msg(EnumChatFormatting.GOLD + "[P2S] Trace logging " + (Tracing.log ? "on." : "off."));
+                }
+                else
+                {
+                    Map<String, Tracing.Timer> timers = Tracing.getTimers();
+                    if (timers.isEmpty()) Helper.msg(EnumChatFormatting.GOLD + "[P2S] No traces yet. Use '/p2s debug [reset|log]'.");
+                    for (Map.Entry<String, Tracing.Timer> entry : timers.entrySet())
+                    {
+                        Helper.msg((entry.getKey().indexOf('/') == -1 ? EnumChatFormatting.GOLD : EnumChatFormatting.YELLOW) + entry.getKey().toLowerCase() + ": " + entry.getValue());
+                    }
+                }
+                break;
             case "resetsubs":
                 TwitchChecker.INSTANCE.reset();
                 Helper.msg(EnumChatFormatting.GOLD + "[P2S] Subs have been resetted!");
@@ -196,7 +242,7 @@ public class CommandP2S extends CommandBase
     @Override
     public List addTabCompletionOptions(ICommandSender sender, String[] args)
     {
-        if (args.length == 1) return getListOfStringsMatchingLastWord(args, "reload", "configure", "getnbt", "makehtml", "off", "on", "donate", "permissions", "adjusttotal", "test");
+        if (args.length == 1) return getListOfStringsMatchingLastWord(args, "reload", "configure", "getnbt", "makehtml", "off", "on", "donate", "permissions", "adjusttotal", "test", "pipeline", "stats", "debug");
         return null;
     }
 }
@@ -33,6 +33,7 @@ package net.doubledoordev.pay2spawn.cmd;
 import net.doubledoordev.pay2spawn.Pay2Spawn;
 import net.doubledoordev.pay2spawn.ai.CustomAI;
 import net.doubledoordev.pay2spawn.util.Constants;
+import net.doubledoordev.pay2spawn.util.Tracing;
 import net.minecraft.command.CommandBase;
 import net.minecraft.command.ICommandSender;
 import net.minecraft.entity.Entity;
@@ -46,6 +47,7 @@ import net.minecraftforge.common.DimensionManager;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 /**
  * The server side only command
@@ -118,6 +120,12 @@ public class CommandP2SServer extends CommandBase
                 if (args.length == 1) sendChatToPlayer(sender, "Use '/p2sserver hasmod <player>'.", EnumChatFormatting.RED);
                 else sendChatToPlayer(sender, args[1] + (Pay2Spawn.doesPlayerHaveValidConfig(args[1]) ? " does " : " doesn't ") + "have P2S.", EnumChatFormatting.AQUA);
                 break;
+            case "debug":
+                for (Map.Entry<String, Tracing.Timer> entry : Tracing.getTimers().entrySet())
+                {
+                    sendChatToPlayer(sender, entry.getKey().toLowerCase() + ": " + entry.getValue(), entry.getKey().indexOf('/') == -1 ? EnumChatFormatting.GOLD : EnumChatFormatting.YELLOW);
+                }
+                break;
             default:
                 sendChatToPlayer(sender, "Unknown command. Protip: Use tab completion!", EnumChatFormatting.RED);
                 break;
@@ -142,7 +150,7 @@ public class CommandP2SServer extends CommandBase
         switch (args.length)
         {
             case 1:
-                return getListOfStringsMatchingLastWord(args, "reload", "hasmod", "butcher");
+                return getListOfStringsMatchingLastWord(args, "reload", "hasmod", "butcher", "debug");
             case 2:
                 switch (args[1])
                 {
@@ -33,6 +33,7 @@ package net.doubledoordev.pay2spawn.hud;
 import net.doubledoordev.pay2spawn.P2SConfig;
 import net.doubledoordev.pay2spawn.Pay2Spawn;
 import net.doubledoordev.pay2spawn.util.Helper;
+import net.doubledoordev.pay2spawn.util.TextTemplate;
 import net.minecraftforge.common.config.Configuration;
 
 import java.util.ArrayList;
@@ -45,9 +46,11 @@ import java.util.ArrayList;
 public class CountDownHudEntry implements IHudEntry
 {
     public final ArrayList<String> lines = new ArrayList<>();
-    int position, defaultPosition;
+    int position, defaultPosition, amount = 10;
     String header = "", format = "", configCat = "", defaultFormat = "", defaultHeader = "";
     boolean writeToFile = true;
+    TextTemplate template;
+    volatile int version;
 
     public CountDownHudEntry(String configCat, int defaultPosition, String defaultFormat, String defaultHeader)
     {
@@ -68,7 +71,7 @@ public class CountDownHudEntry implements IHudEntry
     @Override
     public int getAmount()
     {
-        return lines.size();
+        return amount;
     }
 
     @Override
@@ -83,6 +86,14 @@ public class CountDownHudEntry implements IHudEntry
         return format;
     }
 
+    /**
+     * @return the format, compiled against $name and $time
+     */
+    public TextTemplate getTemplate()
+    {
+        return template;
+    }
+
     @Override
     public void addToList(ArrayList<String> list)
     {
@@ -98,10 +109,13 @@ public class CountDownHudEntry implements IHudEntry
         Configuration config = Pay2Spawn.getConfig().configuration;
         position = config.get(P2SConfig.HUD + "." + configCat, "position", defaultPosition, "0 = off, 1 = left top, 2 = right top, 3 = left bottom, 4 = right bottom.").getInt(defaultPosition);
 
+        amount = config.get(P2SConfig.HUD + "." + configCat, "amount", amount, "The maximum amount of countdowns shown, the ones closest to firing go first.").getInt(amount);
         writeToFile = config.getBoolean("writeToFile", configCat, writeToFile, "Write to a file for external use.");
 
         format = Helper.formatColors(config.get(P2SConfig.HUD + "." + configCat, "format", defaultFormat).getString());
+        template = TextTemplate.COUNTDOWN.get(format);
         header = Helper.formatColors(config.get(P2SConfig.HUD + "." + configCat, "header", defaultHeader, "Empty for no header. Use \\n for a blank line.").getString()).trim();
+        version++;
     }
 
     @Override
@@ -115,4 +129,18 @@ public class CountDownHudEntry implements IHudEntry
     {
         return writeToFile;
     }
+
+    @Override
+    public int getVersion()
+    {
+        return version;
+    }
+
+    /**
+     * Call after changing the lines from outside
+     */
+    public void markChanged()
+    {
+        version++;
+    }
 }
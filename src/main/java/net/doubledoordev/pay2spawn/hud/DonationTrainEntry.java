@@ -49,7 +49,8 @@ public class DonationTrainEntry implements IHudEntry
     private String timeoutMessage = "";
     private int timeout;
     private String  line        = "";
-    private boolean writeToFile = true;
+    private          boolean writeToFile = true;
+    private volatile int     version;
 
     public DonationTrainEntry()
     {
@@ -96,6 +97,7 @@ public class DonationTrainEntry implements IHudEntry
         line = timeoutMessage = config.get(P2SConfig.HUD + "." + configCat, "timeoutMessage", "No donation train going :(").getString();
         timeout = config.get(P2SConfig.HUD + "." + configCat, "timeout", 60 * 3).getInt();
         writeToFile = config.getBoolean("writeToFile", configCat, writeToFile, "Write to a file for external use.");
+        version++;
     }
 
     @Override
@@ -110,10 +112,17 @@ public class DonationTrainEntry implements IHudEntry
         return writeToFile;
     }
 
+    @Override
+    public int getVersion()
+    {
+        return version;
+    }
+
     public void resetTimeout()
     {
         amount++;
         time = timeout;
+        version++;
     }
 
     public void tick()
@@ -130,5 +139,6 @@ public class DonationTrainEntry implements IHudEntry
         {
             line = format.replace("$amount", amount + "").replace("$time", time + "");
         }
+        version++;
     }
 }
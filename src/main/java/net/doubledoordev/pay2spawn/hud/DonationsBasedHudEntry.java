@@ -31,6 +31,7 @@
 package net.doubledoordev.pay2spawn.hud;
 
 import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
 import net.doubledoordev.pay2spawn.Pay2Spawn;
 import net.doubledoordev.pay2spawn.checkers.CheckerHandler;
 import net.doubledoordev.pay2spawn.util.Donation;
@@ -38,23 +39,35 @@ import net.doubledoordev.pay2spawn.util.Helper;
 import net.minecraftforge.common.config.Configuration;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.List;
+import java.util.HashSet;
+import java.util.PriorityQueue;
 
 /**
  * Base class for all on screen things that have to do with donation data directly
+ * <p/>
+ * Keeps only the best getAmount() donations (according to the comparator) in a heap with the worst one on top,
+ * so a new donation costs O(log amount). The lines are rendered once per accepted donation
+ * and published as an immutable list, readers never need a lock.
  *
  * @author Dries007
  */
 public class DonationsBasedHudEntry implements IHudEntry
 {
-    final ArrayList<String> strings = new ArrayList<>();
+    volatile ImmutableList<String> strings = ImmutableList.of();
     int position, amount, maxAmount, defaultPosition, defaultAmount;
     String header = "", format = "", configCat = "", defaultFormat = "", defaultHeader = "", filename = "";
-    Comparator<Donation> comparator  = CheckerHandler.AMOUNT_DONATION_COMPARATOR;
-    List<Donation>       donations   = new ArrayList<>();
-    boolean              writeToFile = true;
+    Comparator<Donation>  comparator  = CheckerHandler.AMOUNT_DONATION_COMPARATOR;
+    PriorityQueue<Ranked> donations;
+    /**
+     * IDs of the donations in the heap, a donation from the saved history can also come in from the API
+     */
+    HashSet<String>       ids         = new HashSet<>();
+    long                  seq;
+    boolean               writeToFile = true;
+    volatile int          version;
 
     public DonationsBasedHudEntry(String filename, String configCat, int maxAmount, int defaultPosition, int defaultAmount, String defaultFormat, String defaultHeader, Comparator<Donation> comparator)
     {
@@ -67,8 +80,10 @@ public class DonationsBasedHudEntry implements IHudEntry
         this.defaultHeader = defaultHeader;
 
         this.comparator = comparator;
+        donations = new PriorityQueue<>(11, Collections.reverseOrder(new RankedComparator(comparator)));
 
         updateConfig();
+        for (Donation donation : Hud.INSTANCE.getHistory(filename)) add(donation);
     }
 
     @Override
@@ -117,6 +132,12 @@ public class DonationsBasedHudEntry implements IHudEntry
 
         format = Helper.formatColors(config.get(configCat, "format", defaultFormat).getString());
         header = Helper.formatColors(config.get(configCat, "header", defaultHeader, "Empty for no header. Use \\n for a blank line.").getString()).trim();
+
+        synchronized (this)
+        {
+            while (donations.size() > amount) poll();
+            update();
+        }
     }
 
     @Override
@@ -131,26 +152,93 @@ public class DonationsBasedHudEntry implements IHudEntry
         return writeToFile;
     }
 
-    public void add(Donation donation)
+    @Override
+    public int getVersion()
+    {
+        return version;
+    }
+
+    /**
+     * @return the donations currently shown, in no particular order
+     */
+    public synchronized ArrayList<Donation> getDonations()
     {
-        donations.add(donation);
-        Collections.sort(donations, comparator);
+        ArrayList<Donation> list = new ArrayList<>(donations.size());
+        for (Ranked ranked : donations) list.add(ranked.donation);
+        return list;
+    }
+
+    public synchronized void add(Donation donation)
+    {
+        if (donation.id != null && ids.contains(donation.id)) return;
+        Ranked ranked = new Ranked(donation, seq++);
+        if (donations.size() < getAmount()) donations.add(ranked);
+        else if (!donations.isEmpty() && donations.comparator().compare(ranked, donations.peek()) > 0)
+        {
+            poll();
+            donations.add(ranked);
+        }
+        else return;
+        if (donation.id != null) ids.add(donation.id);
         update();
     }
 
+    /**
+     * Call with the lock held
+     */
+    private void poll()
+    {
+        ids.remove(donations.poll().donation.id);
+    }
+
+    /**
+     * Call with the lock held
+     */
     private void update()
     {
-        while (donations.size() > getAmount())
+        Ranked[] sorted = donations.toArray(new Ranked[donations.size()]);
+        Arrays.sort(sorted, new RankedComparator(comparator));
+
+        ArrayList<String> lines = new ArrayList<>(sorted.length + 2);
+        if (!Strings.isNullOrEmpty(this.getHeader())) Helper.addWithEmptyLines(lines, this.getHeader());
+        for (Ranked ranked : sorted)
         {
-            donations.remove(donations.size() - 1);
+            lines.add(Helper.formatText(this.getFormat(), ranked.donation, null));
         }
+        strings = ImmutableList.copyOf(lines);
+        version++;
+    }
+
+    /**
+     * Equal donations keep the order they came in, like the old sorted list did
+     */
+    static final class Ranked
+    {
+        final Donation donation;
+        final long     seq;
 
-        strings.clear();
-        if (!Strings.isNullOrEmpty(this.getHeader())) Helper.addWithEmptyLines(this.strings, this.getHeader());
-        for (Donation donation : donations)
+        Ranked(Donation donation, long seq)
         {
-            strings.add(Helper.formatText(this.getFormat(), donation, null));
+            this.donation = donation;
+            this.seq = seq;
         }
     }
-}
 
+    static final class RankedComparator implements Comparator<Ranked>
+    {
+        final Comparator<Donation> comparator;
+
+        RankedComparator(Comparator<Donation> comparator)
+        {
+            this.comparator = comparator;
+        }
+
+        @Override
+        public int compare(Ranked o1, Ranked o2)
+        {
+            int result = comparator.compare(o1.donation, o2.donation);
+            if (result != 0) return result;
+            return o1.seq < o2.seq ? -1 : (o1.seq == o2.seq ? 0 : 1);
+        }
+    }
+}
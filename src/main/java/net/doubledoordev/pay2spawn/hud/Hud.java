@@ -31,31 +31,72 @@
 package net.doubledoordev.pay2spawn.hud;
 
 import com.google.common.base.Joiner;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
 import cpw.mods.fml.common.FMLCommonHandler;
 import cpw.mods.fml.common.eventhandler.SubscribeEvent;
 import cpw.mods.fml.common.gameevent.TickEvent;
 import net.doubledoordev.pay2spawn.P2SConfig;
 import net.doubledoordev.pay2spawn.Pay2Spawn;
+import net.doubledoordev.pay2spawn.util.Donation;
 import net.minecraftforge.common.config.Configuration;
 import org.apache.commons.io.FileUtils;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static net.doubledoordev.pay2spawn.util.Constants.*;
 
 /**
  * Handler for the event, keeps track of all active IHudEntry s
+ * <p/>
+ * The text files are checked at most every textFileInterval ms. Only entries with a new version get their text rebuilt,
+ * only text that actually changed gets written. Writing happens on a background thread,
+ * to a temporary file that then replaces the real one, so external programs never read a half written file.
+ * A file that could not be written (on Windows a file open in another program can't be replaced) is retried every interval.
+ * <p/>
+ * The donations shown by DonationsBasedHudEntries are saved the same way, so they are back after a restart without asking the APIs.
  *
  * @author Dries007
  */
 public class Hud
 {
+    public static final String             HISTORY  = "DonationHistory.json";
     public static final Hud                INSTANCE = new Hud();
     public final        HashSet<IHudEntry> set      = new HashSet<>();
     private final File folder;
-    private String lineSeperator = " | ";
+    private final HashMap<IHudEntry, Integer> versions        = new HashMap<>();
+    private final HashMap<IHudEntry, Integer> historyVersions = new HashMap<>();
+    private final HashMap<IHudEntry, String>  texts    = new HashMap<>();
+    /**
+     * Text per file that is written or queued, entries are removed again if writing fails
+     */
+    private final ConcurrentHashMap<File, String> written  = new ConcurrentHashMap<>();
+    /**
+     * Newest text per file, a file that changes again before it got written is only written once
+     */
+    private final ConcurrentHashMap<File, String> pending  = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<File, String> failed   = new ConcurrentHashMap<>();
+    private final AtomicBoolean                   queued   = new AtomicBoolean();
+    private final ExecutorService                 writer;
+    private String lineSeperator    = " | ";
+    private int    textFileInterval = 500;
+    private long   lastCheck;
+    private volatile boolean rebuild;
     private Joiner joiner;
+    private JsonObject history;
 
     private Hud()
     {
@@ -63,6 +104,16 @@ public class Hud
         folder = new File(Pay2Spawn.getFolder(), "textFiles");
         //noinspection ResultOfMethodCallIgnored
         folder.mkdir();
+        writer = Executors.newSingleThreadExecutor(new ThreadFactory()
+        {
+            @Override
+            public Thread newThread(Runnable r)
+            {
+                Thread thread = new Thread(r, "P2S text file writer");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
     }
 
     public void render(ArrayList<String> left, ArrayList<String> right, ArrayList<String> bottomLeft, ArrayList<String> bottomRight)
@@ -91,43 +142,178 @@ public class Hud
     {
         Configuration config = Pay2Spawn.getConfig().configuration;
         lineSeperator = config.get(P2SConfig.HUD, "lineSeperator", lineSeperator, "Separator in between 2 or more lines when writing to the text tile. Use \\n to indicate a new line.").getString();
+        textFileInterval = config.get(P2SConfig.HUD, "textFileInterval", textFileInterval, "The minimum time in ms in between 2 updates of the text files.").getInt(textFileInterval);
         for (IHudEntry hudEntry : set) hudEntry.updateConfig();
 
         joiner = Joiner.on(lineSeperator);
+        rebuild = true;
     }
 
     @SubscribeEvent
     public void writefile(TickEvent.ClientTickEvent event)
     {
         if (event.phase != TickEvent.Phase.END) return;
+        long now = System.currentTimeMillis();
+        if (now - lastCheck < textFileInterval) return;
+        lastCheck = now;
+        if (rebuild)
+        {
+            rebuild = false;
+            versions.clear();
+        }
 
+        for (File file : failed.keySet())
+        {
+            String text = failed.remove(file);
+            if (text != null) write(file, text);
+        }
+
+        boolean changed = false;
         ArrayList<String> allLines = new ArrayList<>();
         for (IHudEntry hudEntry : set)
         {
             if (!hudEntry.writeToFile()) continue;
 
-            ArrayList<String> lines = new ArrayList<>();
-            hudEntry.addToList(lines);
+            int version = hudEntry.getVersion();
+            Integer oldVersion = versions.get(hudEntry);
+            String text = texts.get(hudEntry);
+            if (text == null || oldVersion == null || oldVersion != version)
+            {
+                versions.put(hudEntry, version);
 
-            String text = joiner.join(lines);
+                ArrayList<String> lines = new ArrayList<>();
+                hudEntry.addToList(lines);
+                text = joiner.join(lines);
+                texts.put(hudEntry, text);
+                changed |= write(new File(folder, hudEntry.getFilename()), text);
+            }
             allLines.add(text);
+        }
+        if (changed) write(new File(folder, "Combined.txt"), joiner.join(allLines));
+
+        boolean historyChanged = false;
+        for (IHudEntry hudEntry : set)
+        {
+            if (!(hudEntry instanceof DonationsBasedHudEntry)) continue;
+            Integer oldVersion = historyVersions.put(hudEntry, hudEntry.getVersion());
+            historyChanged |= oldVersion == null || oldVersion != hudEntry.getVersion();
+        }
+        if (historyChanged) saveHistory();
+    }
 
+    /**
+     * @return the donations the entry with this filename showed last session
+     */
+    public synchronized ArrayList<Donation> getHistory(String filename)
+    {
+        ArrayList<Donation> list = new ArrayList<>();
+        JsonElement element = loadHistory().get(filename);
+        if (element == null || !element.isJsonArray()) return list;
+        for (JsonElement donation : element.getAsJsonArray())
+        {
             try
             {
-                FileUtils.writeStringToFile(new File(folder, hudEntry.getFilename()), joiner.join(lines));
+                list.add(GSON.fromJson(donation, Donation.class));
             }
-            catch (IOException e)
+            catch (Exception e)
             {
-                e.printStackTrace();
+                Pay2Spawn.getLogger().warn("Ignoring a broken donation in " + HISTORY + ": " + e);
             }
         }
+        return list;
+    }
+
+    private JsonObject loadHistory()
+    {
+        if (history != null) return history;
+        history = new JsonObject();
+        File file = new File(Pay2Spawn.getFolder(), HISTORY);
+        if (!file.exists()) return history;
         try
         {
-            FileUtils.writeStringToFile(new File(folder, "Combined.txt"), joiner.join(allLines));
+            history = JSON_PARSER.parse(FileUtils.readFileToString(file, "UTF-8")).getAsJsonObject();
         }
-        catch (IOException e)
+        catch (Exception e)
         {
+            Pay2Spawn.getLogger().warn("Could not read " + HISTORY + ", the donation HUD starts empty.");
             e.printStackTrace();
         }
+        return history;
+    }
+
+    /**
+     * Entries of checkers that are off this session are kept
+     */
+    private synchronized void saveHistory()
+    {
+        JsonObject root = loadHistory();
+        for (IHudEntry hudEntry : set)
+        {
+            if (!(hudEntry instanceof DonationsBasedHudEntry)) continue;
+            JsonArray array = new JsonArray();
+            for (Donation donation : ((DonationsBasedHudEntry) hudEntry).getDonations())
+            {
+                JsonObject object = new JsonObject();
+                object.addProperty("id", donation.id);
+                object.addProperty("amount", donation.amount);
+                object.addProperty("username", donation.username);
+                object.addProperty("note", donation.note);
+                object.addProperty("time", donation.time);
+                array.add(object);
+            }
+            root.add(hudEntry.getFilename(), array);
+        }
+        write(new File(Pay2Spawn.getFolder(), HISTORY), GSON_NOPP.toJson(root));
+    }
+
+    /**
+     * @return false if the file already has this text
+     */
+    private boolean write(File file, String text)
+    {
+        if (text.equals(written.get(file))) return false;
+        written.put(file, text);
+        pending.put(file, text);
+        if (queued.compareAndSet(false, true)) writer.execute(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                queued.set(false);
+                for (File file : pending.keySet())
+                {
+                    String text = pending.remove(file);
+                    if (text != null && !writeAtomic(file, text) && written.remove(file, text)) failed.put(file, text);
+                }
+            }
+        });
+        return true;
+    }
+
+    /**
+     * @return false if the file could not be written
+     */
+    private static boolean writeAtomic(File file, String text)
+    {
+        File tmp = new File(file.getParentFile(), file.getName() + ".tmp");
+        try
+        {
+            FileUtils.writeStringToFile(tmp, text);
+            try
+            {
+                Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            catch (AtomicMoveNotSupportedException e)
+            {
+                Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            return true;
+        }
+        catch (IOException e)
+        {
+            Pay2Spawn.getLogger().warn("Could not write " + file.getName() + ", trying again later. " + e);
+            FileUtils.deleteQuietly(tmp);
+            return false;
+        }
     }
 }
@@ -54,4 +54,9 @@ public interface IHudEntry
     public String getFilename();
 
     public boolean writeToFile();
+
+    /**
+     * Has to change every time the lines (might) have changed, so the text files only get rewritten when needed
+     */
+    public int getVersion();
 }
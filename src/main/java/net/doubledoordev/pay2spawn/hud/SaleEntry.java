@@ -49,6 +49,7 @@ public class SaleEntry implements IHudEntry
     int    amount = 0;
     private String  noSaleMessage = "";
     private boolean writeToFile   = true;
+    private int     version;
 
     @Override
     public int getPosition()
@@ -98,6 +99,7 @@ public class SaleEntry implements IHudEntry
         format = Helper.formatColors(config.get(P2SConfig.HUD + "." + configCat, "format", "SALE! $amount% off for $time").getString());
         noSaleMessage = config.get(P2SConfig.HUD + "." + configCat, "noSaleMessage", "No sale right now...").getString();
         writeToFile = config.getBoolean("writeToFile", configCat, writeToFile, "Write to a file for external use.");
+        version++;
     }
 
     @Override
@@ -111,4 +113,14 @@ public class SaleEntry implements IHudEntry
     {
         return writeToFile;
     }
+
+    /**
+     * The time left is part of the text, so while there is a sale this changes every second
+     */
+    @Override
+    public int getVersion()
+    {
+        RewardsDB.Sale sale = Pay2Spawn.getRewardsDB().getLastSale();
+        return 31 * version + (sale == null ? 0 : sale.hashCode() + (int) (System.currentTimeMillis() / 1000));
+    }
 }
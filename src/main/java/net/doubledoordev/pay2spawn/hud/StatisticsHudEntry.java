@@ -47,7 +47,8 @@ public class StatisticsHudEntry implements IHudEntry
     public final ArrayList<String> strings = new ArrayList<>();
     int position, amount, maxAmount, defaultPosition, defaultAmount;
     String header = "", format = "", configCat = "", defaultFormat = "", defaultHeader = "";
-    private boolean writeToFile = true;
+    private          boolean writeToFile = true;
+    private volatile int     version;
 
     public StatisticsHudEntry(String configCat, int maxAmount, int defaultPosition, int defaultAmount, String defaultFormat, String defaultHeader)
     {
@@ -107,6 +108,7 @@ public class StatisticsHudEntry implements IHudEntry
         header = Helper.formatColors(config.get(P2SConfig.HUD + "." + configCat, "header", defaultHeader, "Empty for no header. Use \\n for a blank line.").getString()).trim();
 
         writeToFile = config.getBoolean("writeToFile", configCat, writeToFile, "Write to a file for external use.");
+        version++;
     }
 
     @Override
@@ -120,4 +122,18 @@ public class StatisticsHudEntry implements IHudEntry
     {
         return writeToFile;
     }
+
+    @Override
+    public int getVersion()
+    {
+        return version;
+    }
+
+    /**
+     * Call after changing the lines from outside
+     */
+    public void markChanged()
+    {
+        version++;
+    }
 }
@@ -44,6 +44,7 @@ public class StatusHudEntry implements IHudEntry
     int position, defaultPosition;
     String configCat = "";
     private boolean writeToFile = true;
+    private int     version;
 
     public StatusHudEntry(String configCat, int defaultPosition)
     {
@@ -91,6 +92,7 @@ public class StatusHudEntry implements IHudEntry
         Configuration config = Pay2Spawn.getConfig().configuration;
         position = config.get(P2SConfig.HUD + "." + configCat, "position", defaultPosition, "0 = off, 1 = left top, 2 = right top, 3 = left bottom, 4 = right bottom.").getInt(defaultPosition);
         writeToFile = config.getBoolean("writeToFile", configCat, writeToFile, "Write to a file for external use.");
+        version += 2;
     }
 
     @Override
@@ -104,4 +106,13 @@ public class StatusHudEntry implements IHudEntry
     {
         return writeToFile;
     }
+
+    /**
+     * The lowest bit is the enabled state, so toggling is seen as a change
+     */
+    @Override
+    public int getVersion()
+    {
+        return version | (Pay2Spawn.enable ? 1 : 0);
+    }
 }
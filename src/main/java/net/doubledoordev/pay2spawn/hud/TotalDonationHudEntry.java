@@ -48,7 +48,8 @@ public class TotalDonationHudEntry implements IHudEntry
     int position, defaultPosition;
     String format = "", configCat = "", defaultFormat = "";
     private double  amount      = 0;
-    private boolean writeToFile = true;
+    private          boolean writeToFile = true;
+    private volatile int     version;
 
     public TotalDonationHudEntry(String configCat, int defaultPosition, String defaultFormat, double amount)
     {
@@ -100,6 +101,7 @@ public class TotalDonationHudEntry implements IHudEntry
         position = config.get(P2SConfig.HUD + "." + configCat, "position", defaultPosition, "0 = off, 1 = left top, 2 = right top, 3 = left bottom, 4 = right bottom.").getInt(defaultPosition);
         format = Helper.formatColors(config.get(P2SConfig.HUD + "." + configCat, "format", defaultFormat).getString());
         writeToFile = config.getBoolean("writeToFile", configCat, writeToFile, "Write to a file for external use.");
+        version++;
     }
 
     @Override
@@ -114,9 +116,16 @@ public class TotalDonationHudEntry implements IHudEntry
         return writeToFile;
     }
 
+    @Override
+    public int getVersion()
+    {
+        return version;
+    }
+
     public void addToDonationamount(double amount)
     {
         this.amount += amount;
+        version++;
     }
 
     public double getDonated()
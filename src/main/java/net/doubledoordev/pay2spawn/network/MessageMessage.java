@@ -40,6 +40,7 @@ import net.doubledoordev.pay2spawn.Pay2Spawn;
 import net.doubledoordev.pay2spawn.util.Donation;
 import net.doubledoordev.pay2spawn.util.Helper;
 import net.doubledoordev.pay2spawn.util.Reward;
+import net.doubledoordev.pay2spawn.util.TextTemplate;
 import net.minecraft.server.MinecraftServer;
 import net.minecraft.util.ChatComponentText;
 
@@ -102,14 +103,7 @@ public class MessageMessage implements IMessage
                 String format = Helper.formatColors(Pay2Spawn.getConfig().serverMessage);
                 if (Strings.isNullOrEmpty(format)) return null;
 
-                format = format.replace("$name", message.donation.username);
-                format = format.replace("$amount", message.donation.amount + "");
-                format = format.replace("$note", message.donation.note);
-                format = format.replace("$streamer", ctx.getServerHandler().playerEntity.getDisplayName());
-                format = format.replace("$reward_message", message.message);
-                format = format.replace("$reward_name", message.name);
-                format = format.replace("$reward_amount", message.amount + "");
-                format = format.replace("$reward_countdown", message.countdown + "");
+                format = TextTemplate.SERVER_MESSAGE.get(format).render(message.donation.username, message.donation.amount, message.donation.note, ctx.getServerHandler().playerEntity.getDisplayName(), message.message, message.name, message.amount, message.countdown);
 
                 MinecraftServer.getServer().getConfigurationManager().sendChatMsg(new ChatComponentText(format));
             }
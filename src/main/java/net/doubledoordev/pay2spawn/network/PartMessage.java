@@ -0,0 +1,314 @@
+/*
+ * Copyright (c) 2014, DoubleDoorDevelopment
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ *
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ *  Neither the name of the project nor the names of its
+ *   contributors may be used to endorse or promote products derived from
+ *   this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.doubledoordev.pay2spawn.network;
+
+import cpw.mods.fml.common.network.simpleimpl.IMessage;
+import cpw.mods.fml.common.network.simpleimpl.IMessageHandler;
+import cpw.mods.fml.common.network.simpleimpl.MessageContext;
+import io.netty.buffer.ByteBuf;
+import net.doubledoordev.pay2spawn.Pay2Spawn;
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.nbt.CompressedStreamTools;
+import net.minecraft.nbt.NBTSizeTracker;
+import net.minecraft.nbt.NBTTagCompound;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends one compressed NBT compound as multiple packets, so it isn't limited by the 32k packet cap.
+ * The receiving side puts the parts back together and passes the compound to the {@link Kind}'s handler.
+ *
+ * @author Dries007
+ */
+public class PartMessage implements IMessage
+{
+    /**
+     * Bytes of compressed NBT per packet, leaves room for the header under the 32767 byte client packet limit
+     */
+    public static final int  PART_SIZE       = 30000;
+    /**
+     * Limits for data coming from the server, which is trusted
+     */
+    public static final int  MAX_PARTS       = 512;
+    public static final int  MAX_SIZE        = PART_SIZE * MAX_PARTS;
+    public static final long MAX_NBT         = 64L * 1024 * 1024;
+    /**
+     * Limits for data coming from clients. Everything is held in memory before any permission check, so keep these small.
+     */
+    public static final int  TO_SERVER_PARTS = 16;
+    public static final int  TO_SERVER_SIZE  = PART_SIZE * TO_SERVER_PARTS;
+    public static final long TO_SERVER_NBT   = 4L * 1024 * 1024;
+    /**
+     * Unfinished transfers older than this get dropped
+     */
+    public static final long TIMEOUT         = 60000;
+
+    private static final AtomicInteger                       NEXT_ID   = new AtomicInteger();
+    private static final ConcurrentHashMap<String, Transfer> TRANSFERS = new ConcurrentHashMap<>();
+
+    private Kind   kind;
+    private int    id;
+    private int    part;
+    private int    parts;
+    private byte[] data;
+
+    public PartMessage()
+    {
+    }
+
+    private PartMessage(Kind kind, int id, int part, int parts, byte[] data)
+    {
+        this.kind = kind;
+        this.id = id;
+        this.part = part;
+        this.parts = parts;
+        this.data = data;
+    }
+
+    /**
+     * @return the compressed size of the compound, the same size a normal message would put in one packet
+     */
+    public static int compressedSize(NBTTagCompound root)
+    {
+        try
+        {
+            return CompressedStreamTools.compress(root).length;
+        }
+        catch (IOException e)
+        {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * @return true if the compound can be sent in one normal packet
+     */
+    public static boolean fitsInOnePacket(NBTTagCompound root)
+    {
+        return compressedSize(root) <= PART_SIZE;
+    }
+
+    public static void sendToServer(Kind kind, NBTTagCompound root)
+    {
+        for (PartMessage message : split(kind, root)) Pay2Spawn.getSnw().sendToServer(message);
+    }
+
+    public static void sendTo(Kind kind, NBTTagCompound root, EntityPlayerMP player)
+    {
+        for (PartMessage message : split(kind, root)) Pay2Spawn.getSnw().sendTo(message, player);
+    }
+
+    private static ArrayList<PartMessage> split(Kind kind, NBTTagCompound root)
+    {
+        byte[] bytes;
+        try
+        {
+            bytes = CompressedStreamTools.compress(root);
+        }
+        catch (IOException e)
+        {
+            throw new RuntimeException(e);
+        }
+        if (bytes.length > kind.maxSize) throw new IllegalArgumentException("Data too big to send. " + bytes.length + " > " + kind.maxSize + " bytes compressed.");
+
+        int id = NEXT_ID.incrementAndGet();
+        int parts = Math.max(1, (bytes.length + PART_SIZE - 1) / PART_SIZE);
+        ArrayList<PartMessage> messages = new ArrayList<>(parts);
+        for (int i = 0; i < parts; i++) messages.add(new PartMessage(kind, id, i, parts, Arrays.copyOfRange(bytes, i * PART_SIZE, Math.min(bytes.length, (i + 1) * PART_SIZE))));
+        return messages;
+    }
+
+    @Override
+    public void fromBytes(ByteBuf buf)
+    {
+        int kindId = buf.readUnsignedByte();
+        kind = kindId < Kind.values().length ? Kind.values()[kindId] : null;
+        id = buf.readInt();
+        part = buf.readUnsignedShort();
+        parts = buf.readUnsignedShort();
+        int length = buf.readInt();
+        if (length < 0 || length > PART_SIZE) throw new IllegalArgumentException("Part too big: " + length);
+        data = new byte[length];
+        buf.readBytes(data);
+    }
+
+    @Override
+    public void toBytes(ByteBuf buf)
+    {
+        buf.writeByte(kind.ordinal());
+        buf.writeInt(id);
+        buf.writeShort(part);
+        buf.writeShort(parts);
+        buf.writeInt(data.length);
+        buf.writeBytes(data);
+    }
+
+    /**
+     * What the data is, and where it should go
+     */
+    public enum Kind
+    {
+        STRUCTURE_REQUEST(true, TO_SERVER_PARTS, TO_SERVER_NBT)
+                {
+                    @Override
+                    void handle(MessageContext ctx, NBTTagCompound root)
+                    {
+                        StructureImportMessage.handleRequest(ctx.getServerHandler().playerEntity, root);
+                    }
+                },
+        STRUCTURE_REPLY(false, MAX_PARTS, MAX_NBT)
+                {
+                    @Override
+                    void handle(MessageContext ctx, NBTTagCompound root)
+                    {
+                        StructureImportMessage.handleReply(root);
+                    }
+                },
+        REWARD(true, TO_SERVER_PARTS, TO_SERVER_NBT)
+                {
+                    @Override
+                    void handle(MessageContext ctx, NBTTagCompound root)
+                    {
+                        RewardMessage.handle(ctx.getServerHandler().playerEntity, root.getCompoundTag("reward"), root.getCompoundTag("rewardData"));
+                    }
+                },
+        TEST(true, TO_SERVER_PARTS, TO_SERVER_NBT)
+                {
+                    @Override
+                    void handle(MessageContext ctx, NBTTagCompound root)
+                    {
+                        TestMessage.handle(ctx.getServerHandler().playerEntity, root.getString("name"), root.getCompoundTag("data"));
+                    }
+                };
+
+        public final boolean toServer;
+        public final int     maxParts;
+        public final int     maxSize;
+        /**
+         * Max uncompressed size in bytes
+         */
+        public final long    maxNbt;
+
+        Kind(boolean toServer, int maxParts, long maxNbt)
+        {
+            this.toServer = toServer;
+            this.maxParts = maxParts;
+            this.maxSize = PART_SIZE * maxParts;
+            this.maxNbt = maxNbt;
+        }
+
+        abstract void handle(MessageContext ctx, NBTTagCompound root);
+    }
+
+    private static class Transfer
+    {
+        final long     started = System.currentTimeMillis();
+        final int      id;
+        final byte[][] data;
+        int received, size;
+
+        Transfer(int id, int parts)
+        {
+            this.id = id;
+            data = new byte[parts][];
+        }
+
+        /**
+         * @return true if this was the last missing part
+         */
+        synchronized boolean add(int part, byte[] bytes)
+        {
+            if (data[part] != null) return false;
+            data[part] = bytes;
+            size += bytes.length;
+            return ++received == data.length;
+        }
+
+        synchronized byte[] join()
+        {
+            byte[] bytes = new byte[size];
+            int offset = 0;
+            for (byte[] part : data)
+            {
+                System.arraycopy(part, 0, bytes, offset, part.length);
+                offset += part.length;
+            }
+            return bytes;
+        }
+    }
+
+    public static class Handler implements IMessageHandler<PartMessage, IMessage>
+    {
+        @Override
+        public IMessage onMessage(PartMessage message, MessageContext ctx)
+        {
+            if (message.kind == null || message.kind.toServer != ctx.side.isServer()) return null;
+            if (message.parts < 1 || message.parts > message.kind.maxParts || message.part >= message.parts) return null;
+
+            // One transfer per sender and kind, a new id replaces the unfinished one.
+            String key = (ctx.side.isServer() ? ctx.getServerHandler().playerEntity.getCommandSenderName() : "server") + ":" + message.kind;
+            Transfer transfer = TRANSFERS.get(key);
+            if (transfer == null || transfer.id != message.id)
+            {
+                long now = System.currentTimeMillis();
+                for (Iterator<Transfer> i = TRANSFERS.values().iterator(); i.hasNext(); ) if (now - i.next().started > TIMEOUT) i.remove();
+
+                Transfer fresh = new Transfer(message.id, message.parts);
+                if (transfer == null ? TRANSFERS.putIfAbsent(key, fresh) != null : !TRANSFERS.replace(key, transfer, fresh)) return null;
+                transfer = fresh;
+            }
+            if (transfer.data.length != message.parts)
+            {
+                TRANSFERS.remove(key, transfer);
+                return null;
+            }
+            if (!transfer.add(message.part, message.data)) return null;
+            TRANSFERS.remove(key, transfer);
+
+            try
+            {
+                // NBTSizeTracker counts bits
+                message.kind.handle(ctx, CompressedStreamTools.func_152457_a(transfer.join(), new NBTSizeTracker(message.kind.maxNbt * 8)));
+            }
+            catch (Exception e)
+            {
+                Pay2Spawn.getLogger().warn("Error handling multi part message " + message.kind + " (" + message.parts + " parts).");
+                e.printStackTrace();
+            }
+            return null;
+        }
+    }
+}
@@ -41,7 +41,10 @@ import net.doubledoordev.pay2spawn.permissions.Node;
 import net.doubledoordev.pay2spawn.permissions.PermissionsHandler;
 import net.doubledoordev.pay2spawn.types.TypeBase;
 import net.doubledoordev.pay2spawn.types.TypeRegistry;
+import net.doubledoordev.pay2spawn.util.Analytics;
 import net.doubledoordev.pay2spawn.util.Helper;
+import net.doubledoordev.pay2spawn.util.Tracing;
+import net.minecraft.entity.player.EntityPlayerMP;
 import net.minecraft.nbt.NBTTagCompound;
 import net.minecraft.util.EnumChatFormatting;
 
@@ -78,36 +81,59 @@ public class RewardMessage implements IMessage
         ByteBufUtils.writeTag(buf, rewardData);
     }
 
-    public static class Handler implements IMessageHandler<RewardMessage, IMessage>
+    /**
+     * Falls back to a {@link PartMessage} if the reward doesn't fit in one packet
+     */
+    public static void send(NBTTagCompound reward, NBTTagCompound rewardData)
     {
-        @Override
-        public IMessage onMessage(RewardMessage message, MessageContext ctx)
+        NBTTagCompound root = new NBTTagCompound();
+        root.setTag("reward", reward);
+        root.setTag("rewardData", rewardData);
+        if (PartMessage.fitsInOnePacket(root)) Pay2Spawn.getSnw().sendToServer(new RewardMessage(reward, rewardData));
+        else PartMessage.sendToServer(PartMessage.Kind.REWARD, root);
+    }
+
+    static void handle(EntityPlayerMP player, NBTTagCompound reward, NBTTagCompound rewardData)
+    {
+        long received = System.nanoTime();
+        boolean traced = rewardData.getLong(Tracing.JVM_KEY) == Tracing.JVM;
+        try
         {
-            try
+            TypeBase type = TypeRegistry.getByName(reward.getString("type").toLowerCase());
+            NBTTagCompound nbt = reward.getCompoundTag("data");
+            Node node = type.getPermissionNode(player, nbt);
+            if (BanHelper.isBanned(node))
             {
-                TypeBase type = TypeRegistry.getByName(message.reward.getString("type").toLowerCase());
-                NBTTagCompound nbt = message.reward.getCompoundTag("data");
-                Node node = type.getPermissionNode(ctx.getServerHandler().playerEntity, nbt);
-                if (BanHelper.isBanned(node))
-                {
-                    Helper.sendChatToPlayer(ctx.getServerHandler().playerEntity, "This node (" + node + ") is banned.", EnumChatFormatting.RED);
-                    Pay2Spawn.getLogger().warn(ctx.getServerHandler().playerEntity.getCommandSenderName() + " tried using globally banned node " + node + ".");
-                    return null;
-                }
-                if (PermissionsHandler.needPermCheck(ctx.getServerHandler().playerEntity) && !PermissionsHandler.hasPermissionNode(ctx.getServerHandler().playerEntity, node))
-                {
-                    Pay2Spawn.getLogger().warn(ctx.getServerHandler().playerEntity.getDisplayName() + " doesn't have perm node " + node.toString());
-                    return null;
-                }
-                type.spawnServerSide(ctx.getServerHandler().playerEntity, nbt, message.rewardData);
+                Helper.sendChatToPlayer(player, "This node (" + node + ") is banned.", EnumChatFormatting.RED);
+                Pay2Spawn.getLogger().warn(player.getCommandSenderName() + " tried using globally banned node " + node + ".");
+                return;
             }
-            catch (Exception e)
+            if (PermissionsHandler.needPermCheck(player) && !PermissionsHandler.hasPermissionNode(player, node))
             {
-                Pay2Spawn.getLogger().warn("ERROR TYPE 3: Error spawning a reward on the server.");
-                Pay2Spawn.getLogger().warn("Type: " + message.reward.getString("type").toLowerCase());
-                Pay2Spawn.getLogger().warn("Data: " + message.reward.getCompoundTag("data"));
-                e.printStackTrace();
+                Pay2Spawn.getLogger().warn(player.getDisplayName() + " doesn't have perm node " + node.toString());
+                return;
             }
+            if (traced) Tracing.record(Tracing.Stage.RECEIVED, type.getName(), rewardData.getLong(Tracing.SENT_KEY), received);
+            type.spawnServerSide(player, nbt, rewardData);
+            Tracing.record(Tracing.Stage.SPAWNED, type.getName(), received);
+            if (traced) Tracing.logTrace(rewardData.getLong(Tracing.TRACE_KEY), type.getName(), Tracing.record(Tracing.Stage.TOTAL, type.getName(), rewardData.getLong(Tracing.CREATED_KEY)));
+            Analytics.INSTANCE.record(Analytics.Kind.SPAWN, type.getName(), rewardData.getDouble(Analytics.AMOUNT_KEY), 0);
+        }
+        catch (Exception e)
+        {
+            Pay2Spawn.getLogger().warn("ERROR TYPE 3: Error spawning a reward on the server.");
+            Pay2Spawn.getLogger().warn("Type: " + reward.getString("type").toLowerCase());
+            Pay2Spawn.getLogger().warn("Data: " + reward.getCompoundTag("data"));
+            e.printStackTrace();
+        }
+    }
+
+    public static class Handler implements IMessageHandler<RewardMessage, IMessage>
+    {
+        @Override
+        public IMessage onMessage(RewardMessage message, MessageContext ctx)
+        {
+            handle(ctx.getServerHandler().playerEntity, message.reward, message.rewardData);
             return null;
         }
     }
@@ -30,111 +30,73 @@
 
 package net.doubledoordev.pay2spawn.network;
 
-import cpw.mods.fml.common.network.ByteBufUtils;
-import cpw.mods.fml.common.network.simpleimpl.IMessage;
-import cpw.mods.fml.common.network.simpleimpl.IMessageHandler;
-import cpw.mods.fml.common.network.simpleimpl.MessageContext;
-import io.netty.buffer.ByteBuf;
 import net.doubledoordev.pay2spawn.types.guis.StructureTypeGui;
+import net.doubledoordev.pay2spawn.util.StructureCapture;
+import net.doubledoordev.pay2spawn.util.StructureCodec;
 import net.doubledoordev.pay2spawn.util.shapes.PointI;
-import net.minecraft.block.Block;
+import net.minecraft.entity.player.EntityPlayerMP;
 import net.minecraft.nbt.NBTTagCompound;
 import net.minecraft.nbt.NBTTagList;
-import net.minecraft.tileentity.TileEntity;
-import net.minecraft.world.World;
 
 import static net.doubledoordev.pay2spawn.types.StructureType.*;
-import static net.doubledoordev.pay2spawn.util.Constants.COMPOUND;
 
 /**
- * Reads all blockID, metadata and NBT from a list of points
+ * Reads all blockID, metadata and NBT from a list of points, see {@link StructureCapture}
  * <p/>
- * Uses NBT instead of a stringified JSON array because of network efficiency
+ * Both the request and the reply use {@link StructureCodec} and go over the network as a {@link PartMessage},
+ * so a large build costs one palette entry per distinct block and is not limited to one packet.
  *
  * @author Dries007
  */
-public class StructureImportMessage implements IMessage
+public class StructureImportMessage
 {
-    NBTTagCompound root;
-
-    public StructureImportMessage()
-    {
-    }
-
-    public StructureImportMessage(NBTTagCompound root)
+    private StructureImportMessage()
     {
-        this.root = root;
     }
 
-    @Override
-    public void fromBytes(ByteBuf buf)
+    /**
+     * Client side, the offset is added to every point the server sends back.
+     */
+    public static void request(Iterable<PointI> points, int offsetx, int offsety, int offsetz)
     {
-        root = ByteBufUtils.readTag(buf);
+        NBTTagCompound marker = new NBTTagCompound();
+        StructureCodec.Encoder encoder = new StructureCodec.Encoder();
+        for (PointI point : points) encoder.add(point.getX(), point.getY(), point.getZ(), marker);
+        NBTTagCompound root = encoder.build();
+        root.setInteger("offsetx", offsetx);
+        root.setInteger("offsety", offsety);
+        root.setInteger("offsetz", offsetz);
+        PartMessage.sendToServer(PartMessage.Kind.STRUCTURE_REQUEST, root);
     }
 
-    @Override
-    public void toBytes(ByteBuf buf)
+    static void handleRequest(EntityPlayerMP player, NBTTagCompound root)
     {
-        ByteBufUtils.writeTag(buf, root);
+        StructureCapture.start(player, root, root.getInteger("offsetx"), root.getInteger("offsety"), root.getInteger("offsetz"));
     }
 
-    public static class Handler implements IMessageHandler<StructureImportMessage, IMessage>
+    /**
+     * Client side, unpacks the structure into one PointI shape per block, the format the structure GUI uses.
+     * A capture comes in as multiple replies, each with the blocks found since the last one.
+     */
+    static void handleReply(NBTTagCompound root)
     {
-        @Override
-        public IMessage onMessage(StructureImportMessage message, MessageContext ctx)
+        final NBTTagList palette = StructureCodec.getPalette(root);
+        final NBTTagList list = new NBTTagList();
+        StructureCodec.decode(root, new StructureCodec.IVisitor()
         {
-            if (ctx.side.isServer())
-            {
-                int offsetx = message.root.getInteger("x"), offsety = message.root.getInteger("y"), offsetz = message.root.getInteger("z");
-                NBTTagCompound newRoot = new NBTTagCompound();
-                NBTTagList newList = new NBTTagList();
-
-                NBTTagList list = message.root.getTagList("list", COMPOUND);
-                for (int i = 0; i < list.tagCount(); i++)
-                {
-                    PointI point = new PointI(list.getCompoundTagAt(i));
-                    World world = ctx.getServerHandler().playerEntity.worldObj;
-                    int x = point.getX(), y = point.getY(), z = point.getZ();
-
-                    // Set up the correct block data
-                    NBTTagList blockDataNbt = new NBTTagList();
-                    {
-                        NBTTagCompound compound = new NBTTagCompound();
-
-                        // BlockID
-                        compound.setInteger(BLOCKID_KEY, Block.getIdFromBlock(world.getBlock(x, y, z)));
-
-                        // metaData
-                        int meta = world.getBlockMetadata(x, y, z);
-                        if (meta != 0) compound.setInteger(META_KEY, meta);
-
-                        // TileEntity
-                        TileEntity te = world.getTileEntity(x, y, z);
-                        if (te != null)
-                        {
-                            NBTTagCompound teNbt = new NBTTagCompound();
-                            te.writeToNBT(teNbt);
-                            teNbt.removeTag("x");
-                            teNbt.removeTag("y");
-                            teNbt.removeTag("z");
-                            compound.setTag(TEDATA_KEY, teNbt);
-                        }
-
-                        blockDataNbt.appendTag(compound);
-                    }
-                    NBTTagCompound shapeNbt = point.move(offsetx, offsety, offsetz).toNBT();
-                    shapeNbt.setTag(BLOCKDATA_KEY, blockDataNbt);
-                    newList.appendTag(shapeNbt);
-                }
-
-                newRoot.setTag("list", newList);
-                return new StructureImportMessage(newRoot);
-            }
-            else
+            @Override
+            public void visit(int x, int y, int z, int index)
             {
-                StructureTypeGui.importCallback(message.root);
-                return null;
+                NBTTagList blockDataNbt = new NBTTagList();
+                blockDataNbt.appendTag(palette.getCompoundTagAt(index).copy());
+                NBTTagCompound shapeNbt = new PointI(x, y, z).toNBT();
+                shapeNbt.setTag(BLOCKDATA_KEY, blockDataNbt);
+                list.appendTag(shapeNbt);
             }
-        }
+        });
+
+        NBTTagCompound newRoot = new NBTTagCompound();
+        newRoot.setTag("list", list);
+        StructureTypeGui.importCallback(newRoot, root.getInteger(StructureCapture.DONE_KEY), root.getInteger(StructureCapture.TOTAL_KEY));
     }
 }
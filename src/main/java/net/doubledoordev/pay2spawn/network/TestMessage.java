@@ -46,6 +46,7 @@ import net.doubledoordev.pay2spawn.types.TypeRegistry;
 import net.doubledoordev.pay2spawn.util.Helper;
 import net.doubledoordev.pay2spawn.util.JsonNBTHelper;
 import net.minecraft.client.Minecraft;
+import net.minecraft.entity.player.EntityPlayerMP;
 import net.minecraft.nbt.NBTTagCompound;
 import net.minecraft.util.EnumChatFormatting;
 
@@ -75,7 +76,17 @@ public class TestMessage implements IMessage
         if (Minecraft.getMinecraft().isGamePaused()) Helper.msg(EnumChatFormatting.RED + "Some tests don't work while paused! Use your chat key to lose focus.");
         NBTTagCompound data = JsonNBTHelper.parseJSON(jsondata);
         if (Helper.checkTooBigForNetwork(data)) return;
-        Pay2Spawn.getSnw().sendToServer(new TestMessage(name, data));
+        if (PartMessage.fitsInOnePacket(data))
+        {
+            Pay2Spawn.getSnw().sendToServer(new TestMessage(name, data));
+        }
+        else
+        {
+            NBTTagCompound root = new NBTTagCompound();
+            root.setString("name", name);
+            root.setTag("data", data);
+            PartMessage.sendToServer(PartMessage.Kind.TEST, root);
+        }
     }
 
     @Override
@@ -92,34 +103,36 @@ public class TestMessage implements IMessage
         ByteBufUtils.writeTag(buf, data);
     }
 
+    static void handle(EntityPlayerMP player, String name, NBTTagCompound data)
+    {
+        RndVariable.reset();
+
+        NBTTagCompound rewardData = new NBTTagCompound();
+        Helper.sendChatToPlayer(player, "Testing reward " + name + ".");
+        Pay2Spawn.getLogger().info("Test by " + player.getCommandSenderName() + " Type: " + name + " Data: " + data);
+        TypeBase type = TypeRegistry.getByName(name);
+
+        Node node = type.getPermissionNode(player, data);
+        if (BanHelper.isBanned(node))
+        {
+            Helper.sendChatToPlayer(player, "This node (" + node + ") is banned.", EnumChatFormatting.RED);
+            Pay2Spawn.getLogger().warn(player.getCommandSenderName() + " tried using globally banned node " + node + ".");
+            return;
+        }
+        if (PermissionsHandler.needPermCheck(player) && !PermissionsHandler.hasPermissionNode(player, node))
+        {
+            Pay2Spawn.getLogger().warn(player.getDisplayName() + " doesn't have perm node " + node.toString());
+            return;
+        }
+        type.spawnServerSide(player, data, rewardData);
+    }
+
     public static class Handler implements IMessageHandler<TestMessage, IMessage>
     {
         @Override
         public IMessage onMessage(TestMessage message, MessageContext ctx)
         {
-            if (ctx.side.isServer())
-            {
-                RndVariable.reset();
-
-                NBTTagCompound rewardData = new NBTTagCompound();
-                Helper.sendChatToPlayer(ctx.getServerHandler().playerEntity, "Testing reward " + message.name + ".");
-                Pay2Spawn.getLogger().info("Test by " + ctx.getServerHandler().playerEntity.getCommandSenderName() + " Type: " + message.name + " Data: " + message.data);
-                TypeBase type = TypeRegistry.getByName(message.name);
-
-                Node node = type.getPermissionNode(ctx.getServerHandler().playerEntity, message.data);
-                if (BanHelper.isBanned(node))
-                {
-                    Helper.sendChatToPlayer(ctx.getServerHandler().playerEntity, "This node (" + node + ") is banned.", EnumChatFormatting.RED);
-                    Pay2Spawn.getLogger().warn(ctx.getServerHandler().playerEntity.getCommandSenderName() + " tried using globally banned node " + node + ".");
-                    return null;
-                }
-                if (PermissionsHandler.needPermCheck(ctx.getServerHandler().playerEntity) && !PermissionsHandler.hasPermissionNode(ctx.getServerHandler().playerEntity, node))
-                {
-                    Pay2Spawn.getLogger().warn(ctx.getServerHandler().playerEntity.getDisplayName() + " doesn't have perm node " + node.toString());
-                    return null;
-                }
-                type.spawnServerSide(ctx.getServerHandler().playerEntity, message.data, rewardData);
-            }
+            if (ctx.side.isServer()) handle(ctx.getServerHandler().playerEntity, message.name, message.data);
             return null;
         }
     }
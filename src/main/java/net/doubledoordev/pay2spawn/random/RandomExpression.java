@@ -0,0 +1,431 @@
+/*
+ * Copyright (c) 2014, DoubleDoorDevelopment
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ *
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ *  Neither the name of the project nor the names of its
+ *   contributors may be used to endorse or promote products derived from
+ *   this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.doubledoordev.pay2spawn.random;
+
+import cpw.mods.fml.common.registry.GameData;
+import net.doubledoordev.pay2spawn.util.Helper;
+import net.doubledoordev.pay2spawn.util.RegistrySnapshot;
+
+import java.util.ArrayList;
+
+import static net.doubledoordev.pay2spawn.util.Constants.*;
+
+/**
+ * A value with random tags, parsed once into a tree and solved in a single pass without regex.
+ * Understands the syntax of the built in resolvers:
+ * $random(), $random(x,y), $random[a, b], $randomRGB(x), $randomEntity, $var(name, random...), $ASCII(text)
+ * and item or block names in SHORT and INT values.
+ * Tags the type doesn't allow are left as text, like the resolvers' #matches would.
+ *
+ * @author Dries007
+ * @see RandomRegistry#compile(int, String)
+ */
+public class RandomExpression
+{
+    private static final int RGB_MAX    = 200;
+    private static final int RGB_OFFSET = 55;
+
+    public final  int    type;
+    private final String value;
+    private final Node   root;
+
+    private RandomExpression(int type, String value, Node root)
+    {
+        this.type = type;
+        this.value = value;
+        this.root = root;
+    }
+
+    public static RandomExpression compile(int type, String value)
+    {
+        if (type == STRING)
+        {
+            // $ASCII(...) always replaced the entire value with its (filtered) content
+            int start = value.indexOf("$ASCII(");
+            int end = value.lastIndexOf(')');
+            if (start != -1 && end > start + 7) return new RandomExpression(type, value, new Ascii(parse(type, value.substring(start + 7, end))));
+        }
+        return new RandomExpression(type, value, parse(type, value));
+    }
+
+    /**
+     * @return true if solving always gives back the original value
+     */
+    public boolean isConstant()
+    {
+        return root instanceof Literal && type != SHORT && type != INT;
+    }
+
+    public String solve()
+    {
+        if (root instanceof Literal) return idOrValue(value);
+        StringBuilder out = new StringBuilder(value.length() + 16);
+        root.solve(out);
+        return idOrValue(out.toString());
+    }
+
+    @Override
+    public String toString()
+    {
+        return value;
+    }
+
+    /**
+     * Item and block names become their id in this world
+     */
+    private String idOrValue(String solved)
+    {
+        if (type != SHORT && type != INT || solved.isEmpty()) return solved;
+        char c = solved.charAt(0);
+        if (c == '-' || (c >= '0' && c <= '9')) return solved;
+        if (GameData.getItemRegistry().containsKey(solved)) return String.valueOf(GameData.getItemRegistry().getId(solved));
+        if (GameData.getBlockRegistry().containsKey(solved)) return String.valueOf(GameData.getBlockRegistry().getId(solved));
+        return solved;
+    }
+
+    private static Node parse(int type, String string)
+    {
+        ArrayList<Node> nodes = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        int i = 0;
+        while (i < string.length())
+        {
+            int next = string.indexOf('$', i);
+            if (next == -1)
+            {
+                literal.append(string, i, string.length());
+                break;
+            }
+            literal.append(string, i, next);
+            int[] end = new int[1];
+            Node node = parseTag(type, string, next, end);
+            if (node == null)
+            {
+                literal.append('$');
+                i = next + 1;
+            }
+            else
+            {
+                if (literal.length() != 0) nodes.add(new Literal(literal.toString()));
+                literal.setLength(0);
+                nodes.add(node);
+                i = end[0];
+            }
+        }
+        if (literal.length() != 0 || nodes.isEmpty()) nodes.add(new Literal(literal.toString()));
+        return nodes.size() == 1 ? nodes.get(0) : new Sequence(nodes.toArray(new Node[nodes.size()]));
+    }
+
+    /**
+     * @param end out: the index right after the tag
+     * @return null if there is no (allowed) tag at i
+     */
+    private static Node parseTag(int type, String s, int i, int[] end)
+    {
+        if (s.startsWith("$var(", i))
+        {
+            // Same as \$var\((.*?), ?([^$]*)\)
+            int comma = s.indexOf(',', i + 5);
+            if (comma == -1) return null;
+            int start = comma + 1;
+            if (start < s.length() && s.charAt(start) == ' ') start++;
+            int dollar = s.indexOf('$', start);
+            int close = s.lastIndexOf(')', (dollar == -1 ? s.length() : dollar) - 1);
+            if (close < start) return null;
+            end[0] = close + 1;
+            return new Var(s.substring(i + 5, comma), compile(type, "$" + s.substring(start, close)));
+        }
+        if (s.startsWith("$randomRGB(", i))
+        {
+            if (type != INT_ARRAY && type != INT && type != STRING) return null;
+            int close = s.indexOf(')', i + 11);
+            if (close == -1 || !isWord(s, i + 11, close)) return null;
+            end[0] = close + 1;
+            return new Colors(type, Integer.parseInt(s.substring(i + 11, close)));
+        }
+        if (s.startsWith("$randomEntity", i))
+        {
+            if (type != STRING) return null;
+            end[0] = i + 13;
+            return new Entity();
+        }
+        if (s.startsWith("$random()", i))
+        {
+            if (type != BYTE && type != STRING) return null;
+            end[0] = i + 9;
+            return new Bool();
+        }
+        if (s.startsWith("$random(", i))
+        {
+            if (type == BYTE_ARRAY || type == LIST || type == INT_ARRAY) return null;
+            int comma = s.indexOf(',', i + 8);
+            int close = s.indexOf(')', i + 8);
+            if (comma == -1 || close == -1 || comma > close) return null;
+            String begin = s.substring(i + 8, comma).trim();
+            String last = s.substring(comma + 1, close).trim();
+            // Non decimal types need integer bounds, anything else is left as text instead of failing at load
+            boolean decimal = type == FLOAT || type == DOUBLE;
+            if (decimal ? !isNumber(begin) || !isNumber(last) : !Helper.isInt(begin) || !Helper.isInt(last)) return null;
+            end[0] = close + 1;
+            return new Range(type, begin, last);
+        }
+        if (s.startsWith("$random[", i))
+        {
+            if (type == BYTE_ARRAY || type == INT_ARRAY) return null;
+            ArrayList<Node> options = new ArrayList<>();
+            int depth = 0, start = i + 8;
+            for (int j = start; j < s.length(); j++)
+            {
+                char c = s.charAt(j);
+                if (c == '[' || c == '(') depth++;
+                else if ((c == ')' || c == ']') && depth > 0) depth--;
+                else if (c == ',' && depth == 0)
+                {
+                    options.add(parse(type, s.substring(start, j)));
+                    start = j + 1;
+                    if (start < s.length() && s.charAt(start) == ' ') start++;
+                }
+                else if (c == ']')
+                {
+                    if (j == i + 8) return null;
+                    options.add(parse(type, s.substring(start, j)));
+                    end[0] = j + 1;
+                    return new Choice(options.toArray(new Node[options.size()]));
+                }
+            }
+        }
+        return null;
+    }
+
+    private static boolean isWord(String s, int start, int end)
+    {
+        if (start == end) return false;
+        for (int i = start; i < end; i++) if (!Character.isLetterOrDigit(s.charAt(i)) && s.charAt(i) != '_') return false;
+        return true;
+    }
+
+    private static boolean isNumber(String s)
+    {
+        return !s.isEmpty() && Helper.isDouble(s);
+    }
+
+    private static abstract class Node
+    {
+        abstract void solve(StringBuilder out);
+    }
+
+    private static class Literal extends Node
+    {
+        final String text;
+
+        Literal(String text)
+        {
+            this.text = text;
+        }
+
+        @Override
+        void solve(StringBuilder out)
+        {
+            out.append(text);
+        }
+    }
+
+    private static class Sequence extends Node
+    {
+        final Node[] nodes;
+
+        Sequence(Node[] nodes)
+        {
+            this.nodes = nodes;
+        }
+
+        @Override
+        void solve(StringBuilder out)
+        {
+            for (Node node : nodes) node.solve(out);
+        }
+    }
+
+    /**
+     * @see RndBoolean
+     */
+    private static class Bool extends Node
+    {
+        @Override
+        void solve(StringBuilder out)
+        {
+            out.append(RANDOM.nextBoolean() ? '1' : '0');
+        }
+    }
+
+    /**
+     * @see RndNumberRange
+     */
+    private static class Range extends Node
+    {
+        final boolean decimal;
+        final int     intBegin, intEnd;
+        final double  begin, end;
+
+        Range(int type, String begin, String end)
+        {
+            decimal = type == FLOAT || type == DOUBLE;
+            this.begin = Double.parseDouble(begin);
+            this.end = Double.parseDouble(end);
+            intBegin = decimal ? 0 : Integer.parseInt(begin);
+            intEnd = decimal ? 0 : Integer.parseInt(end);
+        }
+
+        @Override
+        void solve(StringBuilder out)
+        {
+            if (decimal) out.append(begin + (end - begin) * RANDOM.nextDouble());
+            else out.append(intBegin + RANDOM.nextInt(intEnd - intBegin));
+        }
+    }
+
+    /**
+     * @see RndListValue
+     */
+    private static class Choice extends Node
+    {
+        final Node[] options;
+
+        Choice(Node[] options)
+        {
+            this.options = options;
+        }
+
+        @Override
+        void solve(StringBuilder out)
+        {
+            options[RANDOM.nextInt(options.length)].solve(out);
+        }
+    }
+
+    /**
+     * @see RndColors
+     */
+    private static class Colors extends Node
+    {
+        final boolean array;
+        final int     amount;
+
+        Colors(int type, int amount)
+        {
+            this.array = type == INT_ARRAY;
+            this.amount = amount;
+        }
+
+        @Override
+        void solve(StringBuilder out)
+        {
+            if (array)
+            {
+                out.append('[');
+                for (int i = 0; i < amount; i++)
+                {
+                    if (i != 0) out.append(',');
+                    out.append((RANDOM.nextInt(RGB_MAX) << 16) + (RANDOM.nextInt(RGB_MAX) << 8) + RANDOM.nextInt(RGB_MAX));
+                }
+                out.append(']');
+            }
+            else
+            {
+                out.append(((RGB_OFFSET + RANDOM.nextInt(RGB_MAX)) << 16) + ((RGB_OFFSET + RANDOM.nextInt(RGB_MAX)) << 8) + RGB_OFFSET + RANDOM.nextInt(RGB_MAX));
+            }
+        }
+    }
+
+    /**
+     * @see RndEntity
+     */
+    private static class Entity extends Node
+    {
+        @Override
+        void solve(StringBuilder out)
+        {
+            out.append(RegistrySnapshot.get().randomEntity());
+        }
+    }
+
+    /**
+     * @see RndVariable
+     */
+    private static class Var extends Node
+    {
+        final String           name;
+        final RandomExpression expression;
+
+        Var(String name, RandomExpression expression)
+        {
+            this.name = name;
+            this.expression = expression;
+        }
+
+        @Override
+        void solve(StringBuilder out)
+        {
+            String value = RndVariable.VARMAP.get(name);
+            if (value == null)
+            {
+                value = RandomRegistry.solveRandom(expression);
+                RndVariable.VARMAP.put(name, value);
+            }
+            out.append(value);
+        }
+    }
+
+    /**
+     * @see ASCIIFilter
+     */
+    private static class Ascii extends Node
+    {
+        final Node content;
+
+        Ascii(Node content)
+        {
+            this.content = content;
+        }
+
+        @Override
+        void solve(StringBuilder out)
+        {
+            int start = out.length();
+            content.solve(out);
+            for (int i = out.length() - 1; i >= start; i--)
+            {
+                char c = out.charAt(i);
+                if (c < ' ' || c > '~') out.deleteCharAt(i);
+            }
+        }
+    }
+}
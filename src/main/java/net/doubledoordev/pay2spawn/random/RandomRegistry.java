@@ -39,7 +39,8 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.regex.Pattern;
 
-import static net.doubledoordev.pay2spawn.util.Constants.RANDOM;
+import static net.doubledoordev.pay2spawn.util.Constants.INT;
+import static net.doubledoordev.pay2spawn.util.Constants.SHORT;
 
 /**
  * Handles random tags placed inside the NBT data from the JSON.
@@ -50,6 +51,10 @@ import static net.doubledoordev.pay2spawn.util.Constants.RANDOM;
 public class RandomRegistry
 {
     private static final HashMap<Class<? extends IRandomResolver>, IRandomResolver> RANDOM_RESOLVERS = new HashMap<>();
+    /**
+     * Only when other mods add resolvers the regex based loop is still needed
+     */
+    private static       boolean                                                     customResolvers;
 
     static
     {
@@ -74,6 +79,7 @@ public class RandomRegistry
             }
         });
         addRandomResolver(new ASCIIFilter());
+        customResolvers = false;
     }
 
     /**
@@ -84,6 +90,18 @@ public class RandomRegistry
     public static void addRandomResolver(IRandomResolver resolver)
     {
         RANDOM_RESOLVERS.put(resolver.getClass(), resolver);
+        customResolvers = true;
+    }
+
+    /**
+     * Parse a value once, solve it as often as needed with #solveRandom(RandomExpression)
+     *
+     * @param type  NBT type
+     * @param value The to be randomised string
+     */
+    public static RandomExpression compile(int type, String value)
+    {
+        return RandomExpression.compile(type, value);
     }
 
     /**
@@ -94,6 +112,24 @@ public class RandomRegistry
      * @return the original or a randomised version
      */
     public static String solveRandom(int type, String value)
+    {
+        if (value.indexOf('$') == -1 && type != SHORT && type != INT && !customResolvers) return value;
+        return solveRandom(RandomExpression.compile(type, value));
+    }
+
+    /**
+     * @return the original or a randomised version
+     */
+    public static String solveRandom(RandomExpression expression)
+    {
+        String value = expression.solve();
+        return customResolvers ? solveResolvers(expression.type, value) : value;
+    }
+
+    /**
+     * Loops over all the registered resolvers till nothing changes anymore
+     */
+    private static String solveResolvers(int type, String value)
     {
         String oldValue;
         do
@@ -30,8 +30,7 @@
 
 package net.doubledoordev.pay2spawn.random;
 
-import net.doubledoordev.pay2spawn.util.Helper;
-import net.minecraft.entity.EntityList;
+import net.doubledoordev.pay2spawn.util.RegistrySnapshot;
 
 import java.util.regex.Pattern;
 
@@ -53,7 +52,7 @@ public class RndEntity implements IRandomResolver
     @Override
     public String solverRandom(int type, String value)
     {
-        return PATTERN.matcher(value).replaceFirst(EntityList.getStringFromID((Integer) Helper.getRandomFromSet(EntityList.entityEggs.keySet())));
+        return PATTERN.matcher(value).replaceFirst(RegistrySnapshot.get().randomEntity());
     }
 
     @Override
@@ -51,7 +51,7 @@ import java.util.regex.Pattern;
 public class RndVariable implements IRandomResolver
 {
     private static final Pattern                 PATTERN = Pattern.compile("\\$var\\((.*?), ?([^$]*)\\)");
-    private static final HashMap<String, String> VARMAP  = new HashMap<>();
+    static final         HashMap<String, String> VARMAP  = new HashMap<>();
 
     public static void reset()
     {
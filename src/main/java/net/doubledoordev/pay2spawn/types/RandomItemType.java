@@ -34,9 +34,8 @@ import com.google.gson.JsonObject;
 import net.doubledoordev.pay2spawn.Pay2Spawn;
 import net.doubledoordev.pay2spawn.permissions.Node;
 import net.doubledoordev.pay2spawn.types.guis.RandomItemTypeGui;
-import net.doubledoordev.pay2spawn.util.Helper;
 import net.doubledoordev.pay2spawn.util.JsonNBTHelper;
-import net.minecraft.block.Block;
+import net.doubledoordev.pay2spawn.util.RegistrySnapshot;
 import net.minecraft.entity.item.EntityItem;
 import net.minecraft.entity.player.EntityPlayer;
 import net.minecraft.entity.player.EntityPlayerMP;
@@ -148,16 +147,7 @@ public class RandomItemType extends TypeBase
 
     public ItemStack pickRandomItemStack()
     {
-        ArrayList<ItemStack> itemStacks = new ArrayList<>();
-        for (Object itemName : Item.itemRegistry.getKeys())
-        {
-            itemStacks.add(new ItemStack((Item) Item.itemRegistry.getObject(itemName)));
-        }
-        for (Object blockName : Block.blockRegistry.getKeys())
-        {
-            itemStacks.add(new ItemStack(Block.getBlockFromName(blockName.toString())));
-        }
-
-        return Helper.getRandomFromSet(itemStacks);
+        Item item = RegistrySnapshot.get().randomItem();
+        return item == null ? null : new ItemStack(item);
     }
 }
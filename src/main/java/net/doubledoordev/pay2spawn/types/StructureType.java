@@ -34,9 +34,10 @@ import com.google.gson.JsonObject;
 import net.doubledoordev.pay2spawn.Pay2Spawn;
 import net.doubledoordev.pay2spawn.permissions.Node;
 import net.doubledoordev.pay2spawn.types.guis.StructureTypeGui;
+import net.doubledoordev.pay2spawn.util.AliasTable;
+import net.doubledoordev.pay2spawn.util.BlockPlacer;
 import net.doubledoordev.pay2spawn.util.Helper;
 import net.doubledoordev.pay2spawn.util.shapes.*;
-import net.minecraft.block.Block;
 import net.minecraft.entity.EntityList;
 import net.minecraft.entity.player.EntityPlayer;
 import net.minecraft.entity.player.EntityPlayerMP;
@@ -44,9 +45,9 @@ import net.minecraft.init.Items;
 import net.minecraft.item.ItemStack;
 import net.minecraft.nbt.NBTTagCompound;
 import net.minecraft.nbt.NBTTagList;
-import net.minecraft.tileentity.TileEntity;
 import net.minecraft.tileentity.TileEntityChest;
 import net.minecraft.tileentity.TileEntityMobSpawner;
+import net.minecraft.world.World;
 import net.minecraftforge.common.config.Configuration;
 
 import java.util.*;
@@ -78,44 +79,52 @@ public class StructureType extends TypeBase
     }
 
     private static final String NAME = "structure";
-    public static int[][] bannedBlocks;
-
-    public static void applyShape(IShape shape, EntityPlayer player, ArrayList<NBTTagCompound> blockDataNbtList, byte baseRotation)
+    /**
+     * Block ids banned with all meta, and id << 4 | meta for single meta bans
+     */
+    public static final HashSet<Integer> bannedIds   = new HashSet<>();
+    public static final HashSet<Integer> bannedMetas = new HashSet<>();
+    public static int blocksPerTick = 4096;
+
+    /**
+     * Turns a shape into a BlockPlacer job, doesn't touch the world. Runs on a structure worker thread.
+     *
+     * @param heading the player's heading, or -1 if the structure doesn't rotate
+     */
+    public static void applyShape(IShape shape, final EntityPlayerMP player, World world, ArrayList<NBTTagCompound> blockDataNbtList, byte baseRotation, int heading, int x, int y, int z)
     {
         try
         {
-            ArrayList<BlockData> blockDataList = new ArrayList<>();
+            ArrayList<BlockData> blockDataList = new ArrayList<>(blockDataNbtList.size());
+            double[] weights = new double[blockDataNbtList.size()];
             for (NBTTagCompound compound : blockDataNbtList)
             {
                 BlockData blockData = new BlockData(compound);
-                for (int i = 0; i <= blockData.weight; i++)
-                    blockDataList.add(blockData);
+                weights[blockDataList.size()] = blockData.weight + 1;
+                blockDataList.add(blockData);
             }
 
-            int x = Helper.round(player.posX), y = Helper.round(player.posY + 1), z = Helper.round(player.posZ);
-            Collection<PointI> points = shape.rotate(baseRotation).rotate(baseRotation == -1 ? -1 : Helper.getHeading(player)).move(x, y, z).getPoints();
-            for (PointI p : points)
+            final BlockPlacer.Job job = new BlockPlacer.Job(world, shape.getReplaceableOnly(), new AliasTable<>(blockDataList, weights));
+            shape.rotate(baseRotation).rotate(heading).move(x, y, z).forEachPoint(new IPointVisitor()
             {
-                if (!shape.getReplaceableOnly() || player.worldObj.getBlock(p.getX(), p.getY(), p.getZ()).isReplaceable(player.worldObj, p.getX(), p.getY(), p.getZ()))
+                @Override
+                public void visit(int x, int y, int z)
                 {
-                    BlockData block = blockDataList.size() == 1 ? blockDataList.get(0) : Helper.getRandomFromSet(blockDataList);
-                    Block block1 = Block.getBlockById(block.id);
-                    player.worldObj.setBlock(p.getX(), p.getY(), p.getZ(), block1, block.meta, 2);
-                    if (block.te != null)
-                    {
-                        TileEntity tileEntity = TileEntity.createAndLoadEntity(block.te);
-                        tileEntity.setWorldObj(player.worldObj);
-                        tileEntity.xCoord = p.getX();
-                        tileEntity.yCoord = p.getY();
-                        tileEntity.zCoord = p.getZ();
-                        player.worldObj.setTileEntity(p.getX(), p.getY(), p.getZ(), tileEntity);
-                    }
+                    job.add(x, y, z);
                 }
-            }
+            });
+            BlockPlacer.INSTANCE.add(job);
         }
-        catch (BlockData.BannedBlockException e)
+        catch (final BlockData.BannedBlockException e)
         {
-            ((EntityPlayerMP) player).playerNetServerHandler.kickPlayerFromServer(e.getMessage());
+            BlockPlacer.INSTANCE.runOnTick(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    player.playerNetServerHandler.kickPlayerFromServer(e.getMessage());
+                }
+            });
         }
         catch (Exception e)
         {
@@ -290,21 +299,32 @@ public class StructureType extends TypeBase
     }
 
     @Override
-    public void spawnServerSide(EntityPlayerMP player, NBTTagCompound dataFromClient, NBTTagCompound rewardData)
+    public void spawnServerSide(final EntityPlayerMP player, final NBTTagCompound dataFromClient, NBTTagCompound rewardData)
     {
-        byte baseRotation = dataFromClient.getBoolean(ROTATE_KEY) ? dataFromClient.getByte(BASEROTATION_KEY) : -1;
-        NBTTagList list = dataFromClient.getTagList(SHAPES_KEY, COMPOUND);
-        for (int i = 0; i < list.tagCount(); i++)
+        // Everything that needs the player is read now, the rest happens on a worker thread.
+        final byte baseRotation = dataFromClient.getBoolean(ROTATE_KEY) ? dataFromClient.getByte(BASEROTATION_KEY) : -1;
+        final int heading = baseRotation == -1 ? -1 : Helper.getHeading(player);
+        final int x = Helper.round(player.posX), y = Helper.round(player.posY + 1), z = Helper.round(player.posZ);
+        final World world = player.worldObj;
+        BlockPlacer.INSTANCE.prepare(new Runnable()
         {
-            NBTTagCompound shapeNbt = list.getCompoundTagAt(i);
+            @Override
+            public void run()
+            {
+                NBTTagList list = dataFromClient.getTagList(SHAPES_KEY, COMPOUND);
+                for (int i = 0; i < list.tagCount(); i++)
+                {
+                    NBTTagCompound shapeNbt = list.getCompoundTagAt(i);
 
-            ArrayList<NBTTagCompound> blockDataList = new ArrayList<>();
-            NBTTagList blockDataNbt = shapeNbt.getTagList(BLOCKDATA_KEY, COMPOUND);
-            for (int j = 0; j < blockDataNbt.tagCount(); j++)
-                blockDataList.add(blockDataNbt.getCompoundTagAt(j));
+                    ArrayList<NBTTagCompound> blockDataList = new ArrayList<>();
+                    NBTTagList blockDataNbt = shapeNbt.getTagList(BLOCKDATA_KEY, COMPOUND);
+                    for (int j = 0; j < blockDataNbt.tagCount(); j++)
+                        blockDataList.add(blockDataNbt.getCompoundTagAt(j));
 
-            applyShape(Shapes.loadShape(shapeNbt), player, blockDataList, baseRotation);
-        }
+                    applyShape(Shapes.loadShape(shapeNbt), player, world, blockDataList, baseRotation, heading, x, y, z);
+                }
+            }
+        });
     }
 
     @Override
@@ -313,12 +333,14 @@ public class StructureType extends TypeBase
         configuration.addCustomCategoryComment(TYPES_CAT, "Reward config options");
         configuration.addCustomCategoryComment(TYPES_CAT + '.' + NAME, "Used when spawning structures");
         String[] bannedBlocksStrings = configuration.get(TYPES_CAT + '.' + NAME, "bannedBlocks", new String[0], "Banned blocks, format like this:\nid:metaData => Ban only that meta\nid => Ban all meta of that block").getStringList();
-        bannedBlocks = new int[bannedBlocksStrings.length][];
-        for (int i = 0; i < bannedBlocksStrings.length; i++)
+        blocksPerTick = configuration.get(TYPES_CAT + '.' + NAME, "blocksPerTick", blocksPerTick, "The maximum amount of structure blocks placed per server tick, the rest is placed in the next ticks.").getInt(blocksPerTick);
+        bannedIds.clear();
+        bannedMetas.clear();
+        for (String bannedBlocksString : bannedBlocksStrings)
         {
-            String[] split = bannedBlocksStrings[i].split(":");
-            if (split.length == 1) bannedBlocks[i] = new int[]{Integer.parseInt(split[0])};
-            else bannedBlocks[i] = new int[]{Integer.parseInt(split[0]), Integer.parseInt(split[1])};
+            String[] split = bannedBlocksString.split(":");
+            if (split.length == 1) bannedIds.add(Integer.parseInt(split[0]));
+            else bannedMetas.add(Integer.parseInt(split[0]) << 4 | Integer.parseInt(split[1]));
         }
     }
 
@@ -352,8 +374,8 @@ public class StructureType extends TypeBase
 
     public static class BlockData
     {
-        final int id, meta, weight;
-        final NBTTagCompound te;
+        public final int id, meta, weight;
+        public final NBTTagCompound te;
 
         private BlockData(NBTTagCompound compound) throws BannedBlockException
         {
@@ -363,11 +385,8 @@ public class StructureType extends TypeBase
 
             te = compound.hasKey(TEDATA_KEY) ? compound.getCompoundTag(TEDATA_KEY) : null;
 
-            for (int[] ban : bannedBlocks)
-            {
-                if (ban.length == 1 && id == ban[0]) throw new BannedBlockException("You are trying to use a globally banned block!\nBlockid: " + ban[0]);
-                else if (ban.length == 2 && id == ban[0] && meta == ban[1]) throw new BannedBlockException("You are trying to use a globally banned block!\nBlockid:" + ban[0] + ":" + ban[1]);
-            }
+            if (bannedIds.contains(id)) throw new BannedBlockException("You are trying to use a globally banned block!\nBlockid: " + id);
+            if (bannedMetas.contains(id << 4 | meta)) throw new BannedBlockException("You are trying to use a globally banned block!\nBlockid:" + id + ":" + meta);
         }
 
         @Override
@@ -31,17 +31,15 @@
 package net.doubledoordev.pay2spawn.types.guis;
 
 import cpw.mods.fml.common.eventhandler.SubscribeEvent;
-import net.doubledoordev.pay2spawn.Pay2Spawn;
 import net.doubledoordev.pay2spawn.network.StructureImportMessage;
 import net.doubledoordev.pay2spawn.util.Helper;
 import net.doubledoordev.pay2spawn.util.shapes.IShape;
 import net.doubledoordev.pay2spawn.util.shapes.PointI;
 import net.minecraft.client.Minecraft;
+import net.minecraft.client.renderer.GLAllocation;
 import net.minecraft.client.renderer.Tessellator;
 import net.minecraft.client.renderer.entity.RenderManager;
 import net.minecraft.init.Items;
-import net.minecraft.nbt.NBTTagCompound;
-import net.minecraft.nbt.NBTTagList;
 import net.minecraftforge.client.event.RenderWorldLastEvent;
 import net.minecraftforge.event.entity.player.PlayerInteractEvent;
 import org.lwjgl.opengl.GL11;
@@ -51,6 +49,8 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.util.HashSet;
 
 /**
@@ -75,6 +75,11 @@ public class StructureImporter
     public        JCheckBox        disableAlreadyImportedShapesCheckBox;
     PointI[] tempPointsArray = points.toArray(new PointI[points.size()]);
     Mode     mode            = Mode.SINGLE;
+    /**
+     * The points are compiled into a display list when they change, instead of drawing every point every frame
+     */
+    int      displayList     = -1;
+    boolean  pointsChanged   = true;
     PointI p1; // For BOX mode
     PointI p2; // For BOX mode
 
@@ -88,14 +93,12 @@ public class StructureImporter
             @Override
             public int getSize()
             {
-                tempPointsArray = points.toArray(new PointI[points.size()]);
                 return tempPointsArray.length;
             }
 
             @Override
             public String getElementAt(int index)
             {
-                tempPointsArray = points.toArray(new PointI[points.size()]);
                 return tempPointsArray[index].toString();
             }
         });
@@ -143,6 +146,7 @@ public class StructureImporter
                         p2 = null;
                         selection.clear();
                     }
+                    pointsUpdated();
                 }
                 pointList.updateUI();
             }
@@ -182,6 +186,7 @@ public class StructureImporter
                         p2 = null;
                         selection.clear();
                     }
+                    pointsUpdated();
                 }
                 pointList.updateUI();
             }
@@ -204,18 +209,13 @@ public class StructureImporter
             @Override
             public void actionPerformed(ActionEvent e)
             {
-                NBTTagCompound root = new NBTTagCompound();
-                root.setInteger("x", -Helper.round(Minecraft.getMinecraft().thePlayer.posX));
-                root.setInteger("y", -Helper.round(Minecraft.getMinecraft().thePlayer.posY));
-                root.setInteger("z", -Helper.round(Minecraft.getMinecraft().thePlayer.posZ));
-                NBTTagList list = new NBTTagList();
+                int x = -Helper.round(Minecraft.getMinecraft().thePlayer.posX);
+                int y = -Helper.round(Minecraft.getMinecraft().thePlayer.posY);
+                int z = -Helper.round(Minecraft.getMinecraft().thePlayer.posZ);
                 synchronized (points)
                 {
-                    for (PointI point : points) list.appendTag(point.toNBT());
+                    StructureImportMessage.request(points, x, y, z);
                 }
-                root.setTag("list", list);
-                if (Helper.checkTooBigForNetwork(root)) return;
-                Pay2Spawn.getSnw().sendToServer(new StructureImportMessage(root));
                 dialog.dispose();
             }
         });
@@ -237,6 +237,25 @@ public class StructureImporter
         dialog.setSize(400, 750);
         dialog.setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
         new ForgeEventbusDialogThing(dialog, this);
+        dialog.addWindowListener(new WindowAdapter()
+        {
+            @Override
+            public void windowClosed(WindowEvent e)
+            {
+                if (displayList == -1) return;
+                final int list = displayList;
+                displayList = -1;
+                // GL calls have to happen on the render thread
+                Minecraft.getMinecraft().func_152344_a(new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        GLAllocation.deleteDisplayLists(list);
+                    }
+                });
+            }
+        });
         helpText.setText(mode.helpText);
         dialog.pack();
         dialog.setVisible(true);
@@ -244,6 +263,15 @@ public class StructureImporter
         updateBtns();
     }
 
+    /**
+     * Call with the points lock held, after changing them
+     */
+    private void pointsUpdated()
+    {
+        tempPointsArray = points.toArray(new PointI[points.size()]);
+        pointsChanged = true;
+    }
+
     @SubscribeEvent
     public void renderEvent(RenderWorldLastEvent event)
     {
@@ -264,10 +292,18 @@ public class StructureImporter
         {
             synchronized (points)
             {
-                GL11.glLineWidth(1f);
-                GL11.glColor3d(0, 1, 0);
-                for (PointI point : points) point.render(tess);
+                if (pointsChanged)
+                {
+                    if (displayList == -1) displayList = GLAllocation.generateDisplayLists(1);
+                    GL11.glNewList(displayList, GL11.GL_COMPILE);
+                    for (PointI point : points) point.render(tess);
+                    GL11.glEndList();
+                    pointsChanged = false;
+                }
             }
+            GL11.glLineWidth(1f);
+            GL11.glColor3d(0, 1, 0);
+            GL11.glCallList(displayList);
         }
 
         synchronized (selection)
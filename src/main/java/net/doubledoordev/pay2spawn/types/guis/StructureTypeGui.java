@@ -99,13 +99,22 @@ public class StructureTypeGui extends HelperGuiBase
         makeAndOpen();
     }
 
-    public static void importCallback(NBTTagCompound root)
+    /**
+     * Called for every part of an import, the JSON is only redone once all parts are in
+     */
+    public static void importCallback(NBTTagCompound root, int done, int total)
     {
         NBTTagList list = root.getTagList("list", COMPOUND);
         for (int i = 0; i < list.tagCount(); i++)
         {
             instance.shapes.add(JsonNBTHelper.parseNBT(Shapes.addShapeType(list.getCompoundTagAt(i), PointI.class)));
         }
+        if (done < total)
+        {
+            instance.dialog.setTitle("Editing: " + instance.name + " (importing " + (100L * done / total) + "%)");
+            return;
+        }
+        instance.dialog.setTitle("Editing: " + instance.name);
         instance.updateJson();
         instance.shapeList.clearSelection();
     }
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2014, DoubleDoorDevelopment
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ *
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ *  Neither the name of the project nor the names of its
+ *   contributors may be used to endorse or promote products derived from
+ *   this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.doubledoordev.pay2spawn.util;
+
+import java.util.ArrayDeque;
+import java.util.List;
+
+import static net.doubledoordev.pay2spawn.util.Constants.RANDOM;
+
+/**
+ * Weighted random picking in constant time (Vose's alias method).
+ * Built once from the weights, a pick is one random int and one random double.
+ *
+ * @author Dries007
+ */
+public class AliasTable<T>
+{
+    private final Object[] values;
+    private final double[] probability;
+    private final int[]    alias;
+
+    /**
+     * @param values  the options
+     * @param weights same length as values, negative counts as 0
+     */
+    public AliasTable(List<T> values, double[] weights)
+    {
+        if (values.size() != weights.length) throw new IllegalArgumentException("Values and weights don't match.");
+        int n = weights.length;
+        this.values = values.toArray();
+        probability = new double[n];
+        alias = new int[n];
+
+        double total = 0;
+        for (double weight : weights) total += Math.max(0, weight);
+        if (total <= 0) throw new IllegalArgumentException("The total weight must be more than 0.");
+
+        double[] scaled = new double[n];
+        ArrayDeque<Integer> small = new ArrayDeque<>();
+        ArrayDeque<Integer> large = new ArrayDeque<>();
+        for (int i = 0; i < n; i++)
+        {
+            scaled[i] = Math.max(0, weights[i]) * n / total;
+            if (scaled[i] < 1) small.add(i);
+            else large.add(i);
+        }
+        while (!small.isEmpty() && !large.isEmpty())
+        {
+            int less = small.poll();
+            int more = large.poll();
+            probability[less] = scaled[less];
+            alias[less] = more;
+            scaled[more] = scaled[more] + scaled[less] - 1;
+            if (scaled[more] < 1) small.add(more);
+            else large.add(more);
+        }
+        // Whatever is left is 1 (give or take rounding)
+        while (!large.isEmpty()) probability[large.poll()] = 1;
+        while (!small.isEmpty()) probability[small.poll()] = 1;
+    }
+
+    public int size()
+    {
+        return values.length;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T get(int index)
+    {
+        return (T) values[index];
+    }
+
+    public T pick()
+    {
+        return get(pickIndex());
+    }
+
+    /**
+     * @return the index (in the original list) of a weighted random value
+     */
+    public int pickIndex()
+    {
+        if (values.length == 1) return 0;
+        int i = RANDOM.nextInt(values.length);
+        return RANDOM.nextDouble() < probability[i] ? i : alias[i];
+    }
+}
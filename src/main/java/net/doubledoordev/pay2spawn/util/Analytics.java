@@ -0,0 +1,428 @@
+/*
+ * Copyright (c) 2014, DoubleDoorDevelopment
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ *
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ *  Neither the name of the project nor the names of its
+ *   contributors may be used to endorse or promote products derived from
+ *   this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.doubledoordev.pay2spawn.util;
+
+import com.google.common.base.Charsets;
+import net.doubledoordev.pay2spawn.Pay2Spawn;
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Append only time series of everything that happens to a donation.
+ * <p/>
+ * Every event is one fixed size record (time, kind, key, value, latency) in a memory mapped segment file.
+ * Next to that every event is added to per minute (last day) and per hour (last 30 days) rollups,
+ * with a count, sum, per key breakdown and log scale histograms for the value and latency.
+ * Queries only look at the rollups, the segments are only read once at startup to rebuild them.
+ *
+ * @author Dries007
+ */
+public class Analytics
+{
+    public static final Analytics INSTANCE = new Analytics();
+
+    public static final String FOLDER          = "analytics";
+    public static final int    SEGMENT_RECORDS = 1 << 16;
+    public static final int    RETENTION_DAYS  = 90;
+    public static final String AMOUNT_KEY      = "donationAmount";
+
+    private static final int  MAGIC   = 0x50325354; // P2ST
+    private static final int  VERSION = 1;
+    private static final int  HEADER  = 16;
+    private static final int  RECORD  = 32;
+    private static final long MINUTE  = TimeUnit.MINUTES.toMillis(1);
+    private static final long HOUR    = TimeUnit.HOURS.toMillis(1);
+
+    private final Rollup                   minutes = new Rollup(MINUTE, 24 * 60);
+    private final Rollup                   hours   = new Rollup(HOUR, 24 * 30);
+    private final ArrayList<String>        keys    = new ArrayList<>();
+    private final HashMap<String, Integer> keyIds  = new HashMap<>();
+    private File             folder;
+    private File             keysFile;
+    private MappedByteBuffer segment;
+    private int              segmentId;
+
+    private Analytics()
+    {
+    }
+
+    /**
+     * The value is always the amount donated, never the price of the reward.
+     */
+    public enum Kind
+    {
+        /**
+         * Key is the checker, value the donation amount, latency is from the donation's own timestamp
+         */
+        DONATION,
+        /**
+         * Key is the reward, value the donation amount
+         */
+        REWARD,
+        /**
+         * Key is the reward, value the donation amount, latency is the time spent waiting on the countdown
+         */
+        COUNTDOWN,
+        /**
+         * Key is the type, value the donation amount (0 if the client didn't send it), server side
+         */
+        SPAWN
+    }
+
+    public synchronized void init()
+    {
+        if (folder != null) return;
+        folder = new File(Pay2Spawn.getFolder(), FOLDER);
+        //noinspection ResultOfMethodCallIgnored
+        folder.mkdirs();
+        keysFile = new File(folder, "keys.txt");
+        try
+        {
+            if (keysFile.exists()) for (String key : FileUtils.readLines(keysFile, Charsets.UTF_8)) intern(key, false);
+
+            long now = System.currentTimeMillis();
+            File[] files = folder.listFiles();
+            TreeMap<Integer, File> segments = new TreeMap<>();
+            if (files != null) for (File file : files)
+            {
+                String name = file.getName();
+                if (name.startsWith("segment-") && name.endsWith(".dat")) segments.put(Integer.parseInt(name.substring(8, name.length() - 4)), file);
+            }
+            for (Map.Entry<Integer, File> entry : segments.entrySet())
+            {
+                MappedByteBuffer buffer = map(entry.getValue());
+                int count = Math.max(0, Math.min(SEGMENT_RECORDS, buffer.getInt(8)));
+                long newest = count == 0 ? 0 : buffer.getLong(HEADER + (count - 1) * RECORD);
+                if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION || now - newest > TimeUnit.DAYS.toMillis(RETENTION_DAYS))
+                {
+                    if (!entry.getKey().equals(segments.lastKey())) FileUtils.deleteQuietly(entry.getValue());
+                    continue;
+                }
+                if (now - newest < hours.slots * HOUR)
+                {
+                    for (int i = 0; i < count; i++)
+                    {
+                        int offset = HEADER + i * RECORD;
+                        add(buffer.getLong(offset), buffer.getInt(offset + 8), buffer.getInt(offset + 12), buffer.getDouble(offset + 16), buffer.getLong(offset + 24));
+                    }
+                }
+            }
+            segmentId = segments.isEmpty() ? 0 : segments.lastKey();
+            openSegment();
+            Runtime.getRuntime().addShutdownHook(new Thread("P2S analytics flush")
+            {
+                @Override
+                public void run()
+                {
+                    synchronized (Analytics.this)
+                    {
+                        if (segment != null) segment.force();
+                    }
+                }
+            });
+        }
+        catch (Exception e)
+        {
+            Pay2Spawn.getLogger().warn("Could not open the analytics store, analytics will not be saved.");
+            e.printStackTrace();
+            segment = null;
+        }
+    }
+
+    /**
+     * @param value   amount or 0
+     * @param latency in ms or 0
+     */
+    public synchronized void record(Kind kind, String key, double value, long latency)
+    {
+        long time = System.currentTimeMillis();
+        int keyId = intern(key == null ? "" : key, true);
+        add(time, kind.ordinal(), keyId, value, latency);
+
+        if (segment == null) return;
+        try
+        {
+            int count = segment.getInt(8);
+            if (count == SEGMENT_RECORDS)
+            {
+                segment.force();
+                segmentId++;
+                openSegment();
+                count = 0;
+            }
+            int offset = HEADER + count * RECORD;
+            segment.putLong(offset, time);
+            segment.putInt(offset + 8, kind.ordinal());
+            segment.putInt(offset + 12, keyId);
+            segment.putDouble(offset + 16, value);
+            segment.putLong(offset + 24, latency);
+            segment.putInt(8, count + 1);
+        }
+        catch (IOException e)
+        {
+            Pay2Spawn.getLogger().warn("Could not open a new analytics segment, analytics will not be saved.");
+            e.printStackTrace();
+            segment = null;
+        }
+    }
+
+    /**
+     * Summary of the last windowMs, from per minute buckets up to a day, per hour buckets up to 30 days
+     */
+    public synchronized Summary query(Kind kind, long windowMs)
+    {
+        Rollup rollup = windowMs <= minutes.slots * MINUTE ? minutes : hours;
+        Summary summary = new Summary(windowMs);
+        long first = (System.currentTimeMillis() - windowMs) / rollup.size;
+        for (Bucket[] buckets : rollup.buckets)
+        {
+            Bucket bucket = buckets == null ? null : buckets[kind.ordinal()];
+            if (bucket == null || bucket.index < first) continue;
+            summary.count += bucket.count;
+            summary.sum += bucket.sum;
+            Histogram.merge(summary.values, bucket.values);
+            Histogram.merge(summary.latencies, bucket.latencies);
+            for (Map.Entry<Integer, double[]> entry : bucket.perKey.entrySet())
+            {
+                String key = keys.get(entry.getKey());
+                double[] total = summary.perKey.get(key);
+                if (total == null) summary.perKey.put(key, total = new double[2]);
+                total[0] += entry.getValue()[0];
+                total[1] += entry.getValue()[1];
+            }
+        }
+        return summary;
+    }
+
+    private void add(long time, int kind, int key, double value, long latency)
+    {
+        if (kind < 0 || kind >= Kind.values().length) return;
+        minutes.add(time, kind, key, value, latency);
+        hours.add(time, kind, key, value, latency);
+    }
+
+    private int intern(String key, boolean save)
+    {
+        key = key.replace('\n', ' ').replace('\r', ' ');
+        Integer id = keyIds.get(key);
+        if (id != null) return id;
+        id = keys.size();
+        keys.add(key);
+        keyIds.put(key, id);
+        if (save && keysFile != null)
+        {
+            try
+            {
+                FileUtils.writeStringToFile(keysFile, key + "\n", Charsets.UTF_8, true);
+            }
+            catch (IOException e)
+            {
+                e.printStackTrace();
+            }
+        }
+        return id;
+    }
+
+    private void openSegment() throws IOException
+    {
+        segment = map(new File(folder, String.format("segment-%06d.dat", segmentId)));
+        if (segment.getInt(0) != MAGIC || segment.getInt(4) != VERSION)
+        {
+            segment.putInt(0, MAGIC);
+            segment.putInt(4, VERSION);
+            segment.putInt(8, 0);
+        }
+    }
+
+    private static MappedByteBuffer map(File file) throws IOException
+    {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try
+        {
+            return raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, HEADER + (long) SEGMENT_RECORDS * RECORD);
+        }
+        finally
+        {
+            raf.close(); // The mapping stays valid
+        }
+    }
+
+    /**
+     * Result of a query, percentiles are accurate to within one histogram bucket (25%)
+     */
+    public static class Summary
+    {
+        public final long                      windowMs;
+        public final long[]                    values    = new long[Histogram.BUCKETS];
+        public final long[]                    latencies = new long[Histogram.BUCKETS];
+        public final HashMap<String, double[]> perKey    = new HashMap<>();
+        public       long                      count;
+        public       double                    sum;
+
+        Summary(long windowMs)
+        {
+            this.windowMs = windowMs;
+        }
+
+        /**
+         * @return events per minute
+         */
+        public double getRate()
+        {
+            return count / (windowMs / (double) MINUTE);
+        }
+
+        public double getValuePercentile(double p)
+        {
+            return Histogram.percentile(values, p);
+        }
+
+        public double getLatencyPercentile(double p)
+        {
+            return Histogram.percentile(latencies, p);
+        }
+
+        /**
+         * @return the keys with the highest count, with {count, sum}
+         */
+        public List<Map.Entry<String, double[]>> getTop(int amount)
+        {
+            ArrayList<Map.Entry<String, double[]>> list = new ArrayList<>(perKey.entrySet());
+            Collections.sort(list, new Comparator<Map.Entry<String, double[]>>()
+            {
+                @Override
+                public int compare(Map.Entry<String, double[]> o1, Map.Entry<String, double[]> o2)
+                {
+                    return Double.compare(o2.getValue()[0], o1.getValue()[0]);
+                }
+            });
+            return list.subList(0, Math.min(amount, list.size()));
+        }
+    }
+
+    /**
+     * Log scale buckets, bucket 0 is everything <= 0, bucket i holds values up to MIN * GROWTH ^ i
+     */
+    static class Histogram
+    {
+        static final int    BUCKETS = 96;
+        static final double MIN     = 0.01;
+        static final double GROWTH  = 1.25;
+        static final double LOG     = Math.log(GROWTH);
+
+        static int index(double value)
+        {
+            if (value <= 0) return 0;
+            int i = (int) Math.ceil(Math.log(value / MIN) / LOG);
+            return Math.max(1, Math.min(BUCKETS - 1, i));
+        }
+
+        static void merge(long[] into, long[] from)
+        {
+            for (int i = 0; i < BUCKETS; i++) into[i] += from[i];
+        }
+
+        static double percentile(long[] histogram, double p)
+        {
+            long total = 0;
+            for (long count : histogram) total += count;
+            if (total == 0) return 0;
+            long rank = (long) Math.ceil(total * p / 100.0);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++)
+            {
+                seen += histogram[i];
+                if (seen >= Math.max(1, rank)) return i == 0 ? 0 : MIN * Math.pow(GROWTH, i);
+            }
+            return MIN * Math.pow(GROWTH, BUCKETS - 1);
+        }
+    }
+
+    private static class Bucket
+    {
+        final long                       index;
+        final long[]                     values    = new long[Histogram.BUCKETS];
+        final long[]                     latencies = new long[Histogram.BUCKETS];
+        final HashMap<Integer, double[]> perKey    = new HashMap<>();
+        long   count;
+        double sum;
+
+        Bucket(long index)
+        {
+            this.index = index;
+        }
+    }
+
+    /**
+     * Ring of time buckets, one per kind, a slot is reused once its time has passed
+     */
+    private static class Rollup
+    {
+        final long       size;
+        final int        slots;
+        final Bucket[][] buckets;
+
+        Rollup(long size, int slots)
+        {
+            this.size = size;
+            this.slots = slots;
+            this.buckets = new Bucket[slots][];
+        }
+
+        void add(long time, int kind, int key, double value, long latency)
+        {
+            long index = time / size;
+            int slot = (int) (index % slots);
+            if (buckets[slot] == null) buckets[slot] = new Bucket[Kind.values().length];
+            Bucket bucket = buckets[slot][kind];
+            if (bucket == null || bucket.index != index)
+            {
+                if (bucket != null && bucket.index > index) return; // Older than what this ring still holds
+                bucket = buckets[slot][kind] = new Bucket(index);
+            }
+            bucket.count++;
+            bucket.sum += value;
+            bucket.values[Histogram.index(value)]++;
+            bucket.latencies[Histogram.index(latency)]++;
+            double[] perKey = bucket.perKey.get(key);
+            if (perKey == null) bucket.perKey.put(key, perKey = new double[2]);
+            perKey[0]++;
+            perKey[1] += value;
+        }
+    }
+}
@@ -0,0 +1,361 @@
+/*
+ * Copyright (c) 2014, DoubleDoorDevelopment
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ *
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ *  Neither the name of the project nor the names of its
+ *   contributors may be used to endorse or promote products derived from
+ *   this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.doubledoordev.pay2spawn.util;
+
+import cpw.mods.fml.common.FMLCommonHandler;
+import cpw.mods.fml.common.eventhandler.SubscribeEvent;
+import cpw.mods.fml.common.gameevent.TickEvent;
+import net.doubledoordev.pay2spawn.Pay2Spawn;
+import net.doubledoordev.pay2spawn.types.StructureType;
+import net.minecraft.block.Block;
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.init.Blocks;
+import net.minecraft.network.play.server.S21PacketChunkData;
+import net.minecraft.server.management.PlayerManager;
+import net.minecraft.tileentity.TileEntity;
+import net.minecraft.world.World;
+import net.minecraft.world.WorldServer;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Places structure blocks chunk by chunk, spread over server ticks.
+ * Structures are turned into plans (see Job) on worker threads, the server tick only does the world changes.
+ * Plain blocks are written straight into the chunk's block storage. Once a chunk is finished the block callbacks
+ * (breakBlock, onBlockAdded) and neighbour updates run for every changed position, lighting is left to the chunk's
+ * relight checks and the chunk is sent to the players watching it in one packet.
+ * Blocks with tile entities still go through World#setBlock.
+ *
+ * @author Dries007
+ * @see StructureType#blocksPerTick
+ */
+public class BlockPlacer
+{
+    public static final BlockPlacer INSTANCE = new BlockPlacer();
+    public static final int         WORKERS  = 2;
+
+    private final ConcurrentLinkedQueue<Job>      queue = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final ExecutorService                 workers;
+    private Job current;
+
+    private BlockPlacer()
+    {
+        workers = Executors.newFixedThreadPool(WORKERS, new ThreadFactory()
+        {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r)
+            {
+                Thread thread = new Thread(r, "P2S structure worker " + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    public void init()
+    {
+        FMLCommonHandler.instance().bus().register(this);
+    }
+
+    /**
+     * Run the (world independent) preparation of a structure on a worker thread
+     */
+    public void prepare(final Runnable runnable)
+    {
+        workers.execute(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    runnable.run();
+                }
+                catch (Exception e)
+                {
+                    Pay2Spawn.getLogger().warn("Error preparing a structure.");
+                    e.printStackTrace();
+                }
+            }
+        });
+    }
+
+    /**
+     * Run something on the server thread, at the next tick.
+     * Tasks added while the tasks run (also by themselves) wait for the tick after.
+     */
+    public void runOnTick(Runnable runnable)
+    {
+        tasks.add(runnable);
+    }
+
+    /**
+     * Thread safe, placing starts on the next server tick
+     */
+    public void add(Job job)
+    {
+        if (job.todo.isEmpty()) return;
+        job.seal();
+        queue.add(job);
+    }
+
+    /**
+     * @return the amount of structures waiting or in progress
+     */
+    public int getPending()
+    {
+        return queue.size() + (current == null ? 0 : 1);
+    }
+
+    @SubscribeEvent
+    public void tickEvent(TickEvent.ServerTickEvent event)
+    {
+        if (event.phase != TickEvent.Phase.END) return;
+
+        Runnable task;
+        for (int i = tasks.size(); i > 0 && (task = tasks.poll()) != null; i--) task.run();
+
+        int budget = StructureType.blocksPerTick;
+        while (budget > 0)
+        {
+            if (current == null && (current = queue.poll()) == null) return;
+            try
+            {
+                budget = current.place(budget);
+                if (current.todo.isEmpty()) current = null;
+            }
+            catch (Exception e)
+            {
+                Pay2Spawn.getLogger().warn("Error placing a structure, the rest of it is skipped.");
+                e.printStackTrace();
+                current = null;
+            }
+        }
+    }
+
+    /**
+     * The plan for one structure shape: per chunk the sorted positions, each with the block already picked.
+     * Built on one thread, only read by the server thread once added.
+     */
+    public static class Job
+    {
+        final World                               world;
+        final boolean                             replaceableOnly;
+        final AliasTable<StructureType.BlockData> blocks;
+        final HashMap<Long, Batch>                batches = new HashMap<>();
+        final ArrayDeque<Batch>                   todo    = new ArrayDeque<>();
+
+        /**
+         * @param blocks picked from at random for every block
+         */
+        public Job(World world, boolean replaceableOnly, AliasTable<StructureType.BlockData> blocks)
+        {
+            if (blocks.size() > 0xFFFF) throw new IllegalArgumentException("Too many different blocks in one shape.");
+            this.world = world;
+            this.replaceableOnly = replaceableOnly;
+            this.blocks = blocks;
+        }
+
+        public void add(int x, int y, int z)
+        {
+            if (y < 0 || y > 255) return;
+            long key = ((long) (x >> 4) << 32) | ((z >> 4) & 0xFFFFFFFFL);
+            Batch batch = batches.get(key);
+            if (batch == null)
+            {
+                batch = new Batch(x >> 4, z >> 4);
+                batches.put(key, batch);
+                todo.add(batch);
+            }
+            batch.add(x, y, z, blocks.pickIndex());
+        }
+
+        void seal()
+        {
+            for (Batch batch : todo) Arrays.sort(batch.points, 0, batch.size);
+        }
+
+        /**
+         * @return the budget that is left
+         */
+        int place(int budget)
+        {
+            while (budget > 0 && !todo.isEmpty())
+            {
+                Batch batch = todo.peek();
+                budget = batch.place(this, budget);
+                if (batch.next == batch.size) todo.poll();
+            }
+            return budget;
+        }
+    }
+
+    /**
+     * One chunk worth of points, packed as y, z, x (8, 4, 4 bits) and the block index (16 bits), so sorting groups them per section
+     */
+    static class Batch
+    {
+        final int cx, cz;
+        long[] points = new long[64];
+        int size, next, sections;
+        /**
+         * Positions written straight into storage (index in points) with the block and meta that were there before
+         */
+        int[]   changed      = new int[0];
+        Block[] previous     = new Block[0];
+        int[]   previousMeta = new int[0];
+        int     changes;
+
+        Batch(int cx, int cz)
+        {
+            this.cx = cx;
+            this.cz = cz;
+        }
+
+        void add(int x, int y, int z, int block)
+        {
+            if (size == points.length) points = Arrays.copyOf(points, size * 2);
+            points[size++] = ((long) ((y << 8) | ((z & 15) << 4) | (x & 15)) << 16) | block;
+        }
+
+        int place(Job job, int budget)
+        {
+            World world = job.world;
+            Chunk chunk = world.getChunkFromChunkCoords(cx, cz);
+            ExtendedBlockStorage[] storage = chunk.getBlockStorageArray();
+            while (next < size && budget > 0)
+            {
+                budget--;
+                long packed = points[next++];
+                int point = (int) (packed >>> 16);
+                int lx = point & 15, lz = (point >> 4) & 15, y = point >> 8;
+                int x = (cx << 4) + lx, z = (cz << 4) + lz;
+
+                Block old = chunk.getBlock(lx, y, lz);
+                if (job.replaceableOnly && !old.isReplaceable(world, x, y, z)) continue;
+
+                StructureType.BlockData data = job.blocks.get((int) (packed & 0xFFFF));
+                Block block = Block.getBlockById(data.id);
+                if (data.te != null || block.hasTileEntity(data.meta) || old.hasTileEntity(chunk.getBlockMetadata(lx, y, lz)))
+                {
+                    world.setBlock(x, y, z, block, data.meta, 2);
+                    if (data.te != null)
+                    {
+                        TileEntity tileEntity = TileEntity.createAndLoadEntity(data.te);
+                        tileEntity.setWorldObj(world);
+                        tileEntity.xCoord = x;
+                        tileEntity.yCoord = y;
+                        tileEntity.zCoord = z;
+                        world.setTileEntity(x, y, z, tileEntity);
+                    }
+                    continue;
+                }
+
+                ExtendedBlockStorage section = storage[y >> 4];
+                if (section == null)
+                {
+                    if (block == Blocks.air) continue;
+                    section = storage[y >> 4] = new ExtendedBlockStorage(y >> 4 << 4, !world.provider.hasNoSky);
+                }
+                int oldMeta = section.getExtBlockMetadata(lx, y & 15, lz);
+                if (old == block && oldMeta == data.meta) continue;
+                section.func_150818_a(lx, y & 15, lz, block);
+                section.setExtBlockMetadata(lx, y & 15, lz, data.meta);
+                sections |= 1 << (y >> 4);
+                changed(next - 1, old, oldMeta);
+            }
+            if (next == size) finish(job, chunk);
+            return budget;
+        }
+
+        private void changed(int index, Block old, int oldMeta)
+        {
+            if (changes == changed.length)
+            {
+                int length = Math.max(64, changes * 2);
+                changed = Arrays.copyOf(changed, length);
+                previous = Arrays.copyOf(previous, length);
+                previousMeta = Arrays.copyOf(previousMeta, length);
+            }
+            changed[changes] = index;
+            previous[changes] = old;
+            previousMeta[changes++] = oldMeta;
+        }
+
+        /**
+         * The block callbacks World#setBlock would have done, neighbour updates, lighting and the client update, once per chunk
+         */
+        private void finish(Job job, Chunk chunk)
+        {
+            if (sections == 0) return;
+            World world = job.world;
+            for (int i = 0; i < changes; i++)
+            {
+                long packed = points[changed[i]];
+                int point = (int) (packed >>> 16);
+                int x = (cx << 4) + (point & 15), z = (cz << 4) + ((point >> 4) & 15), y = point >> 8;
+                Block block = Block.getBlockById(job.blocks.get((int) (packed & 0xFFFF)).id);
+                if (previous[i] != block)
+                {
+                    previous[i].breakBlock(world, x, y, z, previous[i], previousMeta[i]);
+                    block.onBlockAdded(world, x, y, z);
+                }
+                world.notifyBlockChange(x, y, z, block);
+            }
+            changes = 0;
+
+            chunk.generateSkylightMap();
+            chunk.resetRelightChecks();
+            chunk.setChunkModified();
+
+            if (!(world instanceof WorldServer)) return;
+            PlayerManager playerManager = ((WorldServer) world).getPlayerManager();
+            S21PacketChunkData packet = new S21PacketChunkData(chunk, false, sections);
+            for (Object object : world.playerEntities)
+            {
+                EntityPlayerMP player = (EntityPlayerMP) object;
+                if (playerManager.isPlayerWatchingChunk(player, cx, cz)) player.playerNetServerHandler.sendPacket(packet);
+            }
+        }
+    }
+}
@@ -31,8 +31,6 @@
 package net.doubledoordev.pay2spawn.util;
 
 import com.google.common.base.Strings;
-import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
 import cpw.mods.fml.common.FMLCommonHandler;
 import cpw.mods.fml.common.eventhandler.SubscribeEvent;
 import cpw.mods.fml.common.gameevent.TickEvent;
@@ -47,14 +45,16 @@ import net.doubledoordev.pay2spawn.types.TypeBase;
 import net.doubledoordev.pay2spawn.types.TypeRegistry;
 import net.minecraft.nbt.NBTTagCompound;
 
-import java.util.HashSet;
+import java.util.Comparator;
 import java.util.Iterator;
-
-import static net.doubledoordev.pay2spawn.util.Constants.JSON_PARSER;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
  * Client side tick things
  * - countdown exists here
+ * Queued rewards are kept ordered by the second they are due, so a tick only looks at the entries that fire
+ * and at the few that are shown on the HUD. New entries come in from the donation pipeline thread through a lock free inbox.
  *
  * @author Dries007
  */
@@ -63,9 +63,23 @@ public class ClientTickHandler
     public static final ClientTickHandler INSTANCE = new ClientTickHandler();
     public DonationTrainEntry donationTrainEntry;
     public SaleEntry          saleEntry;
-    final HashSet<QueEntry> entries = new HashSet<>();
+    private static final Comparator<QueEntry> DUE_COMPARATOR = new Comparator<QueEntry>()
+    {
+        @Override
+        public int compare(QueEntry o1, QueEntry o2)
+        {
+            if (o1.due != o2.due) return o1.due < o2.due ? -1 : 1;
+            return o1.seq < o2.seq ? -1 : (o1.seq == o2.seq ? 0 : 1);
+        }
+    };
+    final ConcurrentLinkedQueue<QueEntry> inbox   = new ConcurrentLinkedQueue<>();
+    /**
+     * Only touched from the client thread
+     */
+    final TreeSet<QueEntry>               entries = new TreeSet<>(DUE_COMPARATOR);
     private CountDownHudEntry countDownHudEntry;
-    private int i = 0;
+    private int  i = 0;
+    private long second, seq;
 
     private ClientTickHandler()
     {
@@ -81,29 +95,31 @@ public class ClientTickHandler
 
         donationTrainEntry.tick();
         countDownHudEntry.lines.clear();
+        second++;
 
-        synchronized (entries)
+        QueEntry queEntry;
+        while ((queEntry = inbox.poll()) != null)
         {
-            Iterator<QueEntry> rewardIterator = entries.iterator();
-            while (rewardIterator.hasNext())
-            {
-                QueEntry queEntry = rewardIterator.next();
-                if (queEntry.remaining == 0)
-                {
-                    queEntry.send();
-                    rewardIterator.remove();
-                }
-                else
-                {
-                    if (countDownHudEntry.getPosition() != 0 && queEntry.addToHUD) countDownHudEntry.lines.add(countDownHudEntry.getFormat().replace("$name", queEntry.reward.getName()).replace("$time", queEntry.remaining + ""));
-                    queEntry.remaining--;
-                }
-            }
+            queEntry.due = second + queEntry.reward.getCountdown();
+            queEntry.startedNanos = System.nanoTime();
+            Tracing.record(Tracing.Stage.QUEUED, null, queEntry.queuedNanos);
+            queEntry.seq = seq++;
+            entries.add(queEntry);
         }
-        if (countDownHudEntry.getPosition() != 0 && !countDownHudEntry.lines.isEmpty())
+
+        while (!entries.isEmpty() && entries.first().due <= second) entries.pollFirst().send();
+
+        if (countDownHudEntry.getPosition() != 0)
         {
-            if (!Strings.isNullOrEmpty(countDownHudEntry.getHeader())) Helper.addWithEmptyLines(countDownHudEntry.lines, countDownHudEntry.getHeader());
+            Iterator<QueEntry> iterator = entries.iterator();
+            while (iterator.hasNext() && countDownHudEntry.lines.size() < countDownHudEntry.getAmount())
+            {
+                queEntry = iterator.next();
+                if (queEntry.addToHUD) countDownHudEntry.lines.add(countDownHudEntry.getTemplate().render(queEntry.reward.getName(), queEntry.due - second));
+            }
+            if (!countDownHudEntry.lines.isEmpty() && !Strings.isNullOrEmpty(countDownHudEntry.getHeader())) Helper.addWithEmptyLines(countDownHudEntry.lines, countDownHudEntry.getHeader());
         }
+        countDownHudEntry.markChanged();
 
         if (CrashType.crash != null)
         {
@@ -114,7 +130,7 @@ public class ClientTickHandler
 
     public void add(Reward reward, Donation donation, boolean addToHUD, Reward actualReward)
     {
-        entries.add(new QueEntry(reward, donation, addToHUD, actualReward));
+        inbox.add(new QueEntry(reward, donation, addToHUD, actualReward));
     }
 
     public void init()
@@ -131,7 +147,9 @@ public class ClientTickHandler
 
     public class QueEntry
     {
-        int      remaining;
+        long     due, seq, startedNanos;
+        long     queued      = System.currentTimeMillis();
+        long     queuedNanos = System.nanoTime();
         Donation donation;
         Reward   reward;
         Reward   actualReward;
@@ -139,7 +157,6 @@ public class ClientTickHandler
 
         public QueEntry(Reward reward, Donation donation, boolean addToHUD, Reward actualReward)
         {
-            this.remaining = reward.getCountdown();
             this.donation = donation;
             this.reward = reward;
             this.addToHUD = addToHUD;
@@ -148,17 +165,24 @@ public class ClientTickHandler
 
         public void send()
         {
+            Analytics.INSTANCE.record(Analytics.Kind.COUNTDOWN, reward.getName(), donation.amount, System.currentTimeMillis() - queued);
             NBTTagCompound rewardData = new NBTTagCompound();
             rewardData.setString("name", reward.getName());
             rewardData.setDouble("amount", reward.getAmount());
-            // replace all the dummy data with the correct data by converting the JsonArry to a string and then parsing that string to a new JsonArray
-            JsonArray rewards = JSON_PARSER.parse(Helper.formatText(reward.getRewards(), donation, actualReward == null ? reward : actualReward).toString()).getAsJsonArray();
-            for (JsonElement reward : rewards)
+            rewardData.setDouble(Analytics.AMOUNT_KEY, donation.amount);
+            rewardData.setLong(Tracing.TRACE_KEY, donation.trace);
+            rewardData.setLong(Tracing.JVM_KEY, Tracing.JVM);
+            rewardData.setLong(Tracing.CREATED_KEY, donation.created);
+            long countdown = Tracing.record(Tracing.Stage.SENT, null, startedNanos);
+            Reward formatReward = actualReward == null ? reward : actualReward;
+            for (RewardTemplate template : reward.getTemplates())
             {
-                NBTTagCompound rewardNtb = JsonNBTHelper.parseJSON(reward.getAsJsonObject());
+                NBTTagCompound rewardNtb = template.render(donation, formatReward);
                 TypeBase type = TypeRegistry.getByName(rewardNtb.getString("type").toLowerCase());
-                type.addConfigTags(rewardNtb, donation, actualReward == null ? this.reward : actualReward);
-                Pay2Spawn.getSnw().sendToServer(new RewardMessage(rewardNtb, rewardData));
+                type.addConfigTags(rewardNtb, donation, formatReward);
+                Tracing.recordType(Tracing.Stage.SENT, type.getName(), countdown);
+                rewardData.setLong(Tracing.SENT_KEY, System.nanoTime());
+                RewardMessage.send(rewardNtb, rewardData);
             }
         }
     }
@@ -48,6 +48,11 @@ public class Donation
     public final String username;
     public final String note;
     public final long time;
+    /**
+     * Not part of equals, see {@link Tracing}
+     */
+    public final long trace   = Tracing.newTrace();
+    public final long created = System.nanoTime();
 
     public Donation(String id, double amount, long time)
     {
@@ -35,19 +35,15 @@ import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonPrimitive;
-import com.mojang.authlib.Agent;
 import com.mojang.authlib.GameProfile;
-import com.mojang.authlib.GameProfileRepository;
-import com.mojang.authlib.ProfileLookupCallback;
-import com.mojang.authlib.yggdrasil.YggdrasilAuthenticationService;
 import io.netty.buffer.ByteBuf;
+import net.doubledoordev.pay2spawn.network.PartMessage;
 import net.doubledoordev.pay2spawn.util.shapes.PointI;
 import net.minecraft.client.Minecraft;
 import net.minecraft.client.renderer.Tessellator;
 import net.minecraft.command.ICommandSender;
 import net.minecraft.entity.Entity;
 import net.minecraft.entity.player.EntityPlayer;
-import net.minecraft.nbt.CompressedStreamTools;
 import net.minecraft.nbt.NBTTagCompound;
 import net.minecraft.server.MinecraftServer;
 import net.minecraft.util.ChatComponentText;
@@ -78,8 +74,7 @@ public class Helper
 {
     public static final String  FORMAT_WITH_DELIMITER = "((?<=\u00a7[0123456789AaBbCcDdEeFfKkLlMmNnOoRr])|(?=\u00a7[0123456789AaBbCcDdEeFfKkLlMmNnOoRr]))";
     public static final Pattern DOUBLE_QUOTES         = Pattern.compile("\"(.*)\"");
-    private static GameProfileRepository profileRepo;
-    private static HashMap<String, GameProfile> nameToProfileMap = new HashMap<>();
+    public static final int     READ_URL_TIMEOUT      = 30 * 1000;
 
     /**
      * Convert & into § if the next char is a chat formatter char
@@ -119,72 +114,65 @@ public class Helper
      * @param donation the donation data
      * @return the fully var-replaced string
      */
-    public static String formatText(String format, Donation donation, Reward reward)
+    public static String formatText(String format, final Donation donation, final Reward reward)
     {
-        if (format.contains("$name")) format = format.replace("$name", donation.username);
-        if (format.contains("$uuid")) format = format.replace("$uuid", getGameProfileFromName(donation.username.replaceAll("[^ -~]", "")).getId().toString());
-        if (format.contains("$amount")) format = format.replace("$amount", donation.amount + "");
-        if (format.contains("$note")) format = format.replace("$note", donation.note);
-        if (Minecraft.getMinecraft().thePlayer != null)
+        return TextTemplate.DONATION.get(format).render(new TextTemplate.Resolver()
         {
-            if (format.contains("$streameruuid")) format = format.replace("$streameruuid", Minecraft.getMinecraft().thePlayer.getGameProfile().getId().toString());
-            if (format.contains("$streamer")) format = format.replace("$streamer", Minecraft.getMinecraft().thePlayer.getCommandSenderName());
-        }
-
-        if (reward != null)
-        {
-            if (format.contains("$reward_message")) format = format.replace("$reward_message", reward.getMessage());
-            if (format.contains("$reward_name")) format = format.replace("$reward_name", reward.getName());
-            if (format.contains("$reward_amount")) format = format.replace("$reward_amount", reward.getAmount() + "");
-            if (format.contains("$reward_countdown")) format = format.replace("$reward_countdown", reward.getCountdown() + "");
-        }
-
-        return format;
+            @Override
+            public boolean append(StringBuilder out, int var)
+            {
+                switch (var)
+                {
+                    case 0: // $name
+                        out.append(donation.username);
+                        return true;
+                    case 1: // $uuid
+                        out.append(getGameProfileFromName(donation.username).getId());
+                        return true;
+                    case 2: // $amount
+                        out.append(donation.amount);
+                        return true;
+                    case 3: // $note
+                        out.append(donation.note);
+                        return true;
+                    case 4: // $streameruuid
+                        if (Minecraft.getMinecraft().thePlayer == null) return false;
+                        out.append(Minecraft.getMinecraft().thePlayer.getGameProfile().getId());
+                        return true;
+                    case 5: // $streamer
+                        if (Minecraft.getMinecraft().thePlayer == null) return false;
+                        out.append(Minecraft.getMinecraft().thePlayer.getCommandSenderName());
+                        return true;
+                }
+                if (reward == null) return false;
+                switch (var)
+                {
+                    case 6: // $reward_message
+                        out.append(reward.getMessage());
+                        return true;
+                    case 7: // $reward_name
+                        out.append(reward.getName());
+                        return true;
+                    case 8: // $reward_amount
+                        out.append(reward.getAmount());
+                        return true;
+                    case 9: // $reward_countdown
+                        out.append(reward.getCountdown());
+                        return true;
+                }
+                return false;
+            }
+        });
     }
 
     /**
-     * Modified method from iChunUtil's EntityHelperBase class
+     * Never does network IO on the calling thread for more than a short wait
      *
-     * @author iChun
+     * @see ProfileResolver
      */
     public static GameProfile getGameProfileFromName(String name)
     {
-        if (name == null)
-        {
-            UUID uuid = EntityPlayer.func_146094_a(new GameProfile(null, ANONYMOUS));
-            return new GameProfile(uuid, ANONYMOUS);
-        }
-        if (nameToProfileMap.containsKey(name)) return nameToProfileMap.get(name);
-
-        final GameProfile[] agameprofile = new GameProfile[1];
-        ProfileLookupCallback profilelookupcallback = new ProfileLookupCallback()
-        {
-            public void onProfileLookupSucceeded(GameProfile p_onProfileLookupSucceeded_1_)
-            {
-                agameprofile[0] = p_onProfileLookupSucceeded_1_;
-            }
-
-            public void onProfileLookupFailed(GameProfile p_onProfileLookupFailed_1_, Exception p_onProfileLookupFailed_2_)
-            {
-                agameprofile[0] = null;
-            }
-        };
-        if (profileRepo == null)
-        {
-            profileRepo = ((new YggdrasilAuthenticationService(Minecraft.getMinecraft().getProxy(), String.format("%s_%s", NAME, UUID.randomUUID())))).createProfileRepository();
-        }
-        profileRepo.findProfilesByNames(new String[]{name}, Agent.MINECRAFT, profilelookupcallback);
-
-        if (agameprofile[0] == null)
-        {
-            UUID uuid = EntityPlayer.func_146094_a(new GameProfile(null, name));
-            GameProfile gameprofile = new GameProfile(uuid, name);
-            profilelookupcallback.onProfileLookupSucceeded(gameprofile);
-        }
-
-        nameToProfileMap.put(agameprofile[0].getName(), agameprofile[0]);
-
-        return agameprofile[0];
+        return ProfileResolver.INSTANCE.get(name);
     }
 
     /**
@@ -273,6 +261,8 @@ public class Helper
         try
         {
             URLConnection connection = url.openConnection();
+            connection.setConnectTimeout(READ_URL_TIMEOUT);
+            connection.setReadTimeout(READ_URL_TIMEOUT);
             for (String[] header : headers) connection.addRequestProperty(header[0], header[1]);
             reader = new BufferedReader(new InputStreamReader(connection.getInputStream()));
 
@@ -486,29 +476,22 @@ public class Helper
     }
 
     /**
-     * a > 32k check
+     * Rewards bigger than one packet get sent in parts, this checks against the limit of that.
      *
      * @return true if too big
      */
     public static boolean checkTooBigForNetwork(NBTTagCompound root)
     {
-        try
+        if (PartMessage.compressedSize(root) > PartMessage.TO_SERVER_SIZE)
         {
-            if (CompressedStreamTools.compress(root).length > 32000)
-            {
-                JOptionPane.showMessageDialog(null, "Your reward is too big. (>32 kb)\nYou will CRASH if you spawn this in.\nYou can fix this by separating one large reward into 2 or more smaller rewards.", "Reward too big", JOptionPane.ERROR_MESSAGE);
-                return true;
-            }
-        }
-        catch (IOException ex)
-        {
-            ex.printStackTrace();
+            JOptionPane.showMessageDialog(null, "Your reward is too big. (>" + PartMessage.TO_SERVER_SIZE / 1024 + " kb)\nIt can't be sent to the server.\nYou can fix this by separating one large reward into 2 or more smaller rewards.", "Reward too big", JOptionPane.ERROR_MESSAGE);
+            return true;
         }
         return false;
     }
 
     /**
-     * a > 32k check
+     * Rewards bigger than one packet get sent in parts, this checks against the limit of that.
      *
      * @return true if too big
      */
@@ -190,41 +190,8 @@ public class JsonNBTHelper
     public static NBTBase parseJSON(JsonPrimitive element)
     {
         String string = element.getAsString();
-        if (string.contains(":"))
-        {
-            for (int id = 0; id < NBTTypes.length; id++)
-            {
-                if (string.startsWith(NBTTypes[id] + ":"))
-                {
-                    String value = string.replace(NBTTypes[id] + ":", "");
-                    value = RandomRegistry.solveRandom(id, value);
-                    switch (id)
-                    {
-                        // 0 = END
-                        case BYTE:
-                            //return new NBTTagByte(Byte.parseByte(value));
-                        case SHORT:
-                            //return new NBTTagShort(Short.parseShort(value));
-                        case INT:
-                            return new NBTTagInt(Integer.parseInt(value));
-                        case LONG:
-                            return new NBTTagLong(Long.parseLong(value));
-                        case FLOAT:
-                            return new NBTTagFloat(Float.parseFloat(value));
-                        case DOUBLE:
-                            return new NBTTagDouble(Double.parseDouble(value));
-                        case BYTE_ARRAY:
-                            return parseJSONByteArray(value);
-                        case STRING:
-                            return new NBTTagString(value);
-                        // 9 = LIST != JsonPrimitive
-                        // 10 = COMPOUND != JsonPrimitive
-                        case INT_ARRAY:
-                            return parseJSONIntArray(value);
-                    }
-                }
-            }
-        }
+        int id = getTypeId(string);
+        if (id != -1) return parseTyped(id, RandomRegistry.solveRandom(id, string.replace(NBTTypes[id] + ":", "")));
 
         // Now it becomes guesswork.
         if (element.isString()) return new NBTTagString(string);
@@ -249,6 +216,68 @@ public class JsonNBTHelper
         throw new NumberFormatException(element.getAsNumber() + " is was not able to be parsed.");
     }
 
+    /**
+     * @param string a json string value, possibly prefixed with its NBT type
+     * @return the NBT type id of the prefix, or -1 if there is no (usable) prefix
+     */
+    public static int getTypeId(String string)
+    {
+        if (!string.contains(":")) return -1;
+        for (int id = 0; id < NBTTypes.length; id++)
+        {
+            if (string.startsWith(NBTTypes[id] + ":"))
+            {
+                switch (id)
+                {
+                    // 0 = END
+                    case BYTE:
+                    case SHORT:
+                    case INT:
+                    case LONG:
+                    case FLOAT:
+                    case DOUBLE:
+                    case BYTE_ARRAY:
+                    case STRING:
+                        // 9 = LIST != JsonPrimitive
+                        // 10 = COMPOUND != JsonPrimitive
+                    case INT_ARRAY:
+                        return id;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param id    NBT type id, as returned by #getTypeId
+     * @param value the value without type prefix, with all randoms solved
+     */
+    public static NBTBase parseTyped(int id, String value)
+    {
+        switch (id)
+        {
+            case BYTE:
+                //return new NBTTagByte(Byte.parseByte(value));
+            case SHORT:
+                //return new NBTTagShort(Short.parseShort(value));
+            case INT:
+                return new NBTTagInt(Integer.parseInt(value));
+            case LONG:
+                return new NBTTagLong(Long.parseLong(value));
+            case FLOAT:
+                return new NBTTagFloat(Float.parseFloat(value));
+            case DOUBLE:
+                return new NBTTagDouble(Double.parseDouble(value));
+            case BYTE_ARRAY:
+                return parseJSONByteArray(value);
+            case STRING:
+                return new NBTTagString(value);
+            case INT_ARRAY:
+                return parseJSONIntArray(value);
+        }
+        throw new IllegalArgumentException("NBT type " + id + " is not a primitive.");
+    }
+
     public static NBTTagByteArray parseJSONByteArray(String value)
     {
         JsonArray in = JSON_PARSER.parse(value).getAsJsonArray();
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2014, DoubleDoorDevelopment
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ *
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ *  Neither the name of the project nor the names of its
+ *   contributors may be used to endorse or promote products derived from
+ *   this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.doubledoordev.pay2spawn.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded multi-producer / single-consumer ring buffer.
+ * Producers claim a slot with one CAS on the tail, the consumer never uses CAS at all.
+ * Every slot carries a sequence number so the consumer only sees fully published elements.
+ *
+ * @param <E> the element type
+ * @author Dries007
+ */
+public final class MpscRingBuffer<E>
+{
+    private final int                     mask;
+    private final AtomicReferenceArray<E> buffer;
+    private final AtomicLongArray         sequence;
+    private final AtomicLong              tail = new AtomicLong();
+    private volatile long head;
+
+    /**
+     * @param capacity rounded up to the next power of 2
+     */
+    public MpscRingBuffer(int capacity)
+    {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        mask = size - 1;
+        buffer = new AtomicReferenceArray<>(size);
+        sequence = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) sequence.set(i, i);
+    }
+
+    /**
+     * Safe to call from any thread.
+     *
+     * @return false if the buffer is full
+     */
+    public boolean offer(E e)
+    {
+        if (e == null) throw new NullPointerException();
+        while (true)
+        {
+            long t = tail.get();
+            int index = (int) (t & mask);
+            long diff = sequence.get(index) - t;
+            if (diff == 0)
+            {
+                if (tail.compareAndSet(t, t + 1))
+                {
+                    buffer.lazySet(index, e);
+                    sequence.set(index, t + 1);
+                    return true;
+                }
+            }
+            else if (diff < 0) return false;
+        }
+    }
+
+    /**
+     * Only call from the consumer thread.
+     *
+     * @return the oldest element or null if there is nothing published yet
+     */
+    public E poll()
+    {
+        long h = head;
+        int index = (int) (h & mask);
+        if (sequence.get(index) != h + 1) return null;
+        E e = buffer.get(index);
+        buffer.lazySet(index, null);
+        sequence.lazySet(index, h + mask + 1);
+        head = h + 1;
+        return e;
+    }
+
+    public int size()
+    {
+        return (int) Math.max(0, tail.get() - head);
+    }
+
+    public int capacity()
+    {
+        return mask + 1;
+    }
+}
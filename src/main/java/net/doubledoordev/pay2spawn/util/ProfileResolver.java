@@ -0,0 +1,324 @@
+/*
+ * Copyright (c) 2014, DoubleDoorDevelopment
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ *
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ *  Neither the name of the project nor the names of its
+ *   contributors may be used to endorse or promote products derived from
+ *   this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.doubledoordev.pay2spawn.util;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.mojang.authlib.Agent;
+import com.mojang.authlib.GameProfile;
+import com.mojang.authlib.GameProfileRepository;
+import com.mojang.authlib.ProfileLookupCallback;
+import com.mojang.authlib.yggdrasil.YggdrasilAuthenticationService;
+import net.doubledoordev.pay2spawn.Pay2Spawn;
+import net.minecraft.client.Minecraft;
+import net.minecraft.entity.player.EntityPlayer;
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static net.doubledoordev.pay2spawn.util.Constants.*;
+
+/**
+ * Resolves donor names to GameProfiles (for $uuid) on a background thread.
+ * Lookups are batched into one request, results are kept in a bounded LRU cache with a TTL that is saved to disk.
+ * Donations trigger a prefetch, so by the time a countdown fires the profile is normally already known.
+ *
+ * @author Dries007
+ */
+public class ProfileResolver implements Runnable
+{
+    public static final ProfileResolver INSTANCE = new ProfileResolver();
+    public static final String          FILENAME = "GameProfiles.json";
+
+    private static final int  MAX_CACHED  = 2048;
+    private static final int  MAX_BATCH   = 100;
+    private static final long TTL         = TimeUnit.DAYS.toMillis(7);
+    /**
+     * Names Mojang doesn't know (or failed lookups) get retried sooner
+     */
+    private static final long OFFLINE_TTL = TimeUnit.HOURS.toMillis(1);
+    /**
+     * How long a caller waits on a lookup that was not prefetched before falling back to the offline UUID
+     */
+    private static final long WAIT        = 2000;
+
+    /**
+     * Guarded by itself
+     */
+    private final LinkedHashMap<String, Entry>             cache   = new LinkedHashMap<String, Entry>(16, 0.75f, true)
+    {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest)
+        {
+            return size() > MAX_CACHED;
+        }
+    };
+    private final ConcurrentHashMap<String, CountDownLatch> pending = new ConcurrentHashMap<>();
+    private final LinkedBlockingQueue<String>               queue   = new LinkedBlockingQueue<>();
+    private GameProfileRepository profileRepo;
+    private Thread                thread;
+
+    private ProfileResolver()
+    {
+    }
+
+    /**
+     * Reads the disk cache, so names seen in earlier sessions don't wait on a lookup
+     */
+    public void init()
+    {
+        load();
+    }
+
+    /**
+     * Start resolving a name without waiting for it
+     */
+    public void prefetch(String name)
+    {
+        if (name == null) return;
+        String key = key(name);
+        if (getCached(key) == null) request(key, clean(name));
+    }
+
+    /**
+     * @return the profile, or an offline one if the lookup takes too long or fails
+     */
+    public GameProfile get(String name)
+    {
+        if (name == null) return offline(ANONYMOUS);
+        String key = key(name);
+        GameProfile profile = getCached(key);
+        if (profile != null) return profile;
+
+        CountDownLatch latch = request(key, clean(name));
+        try
+        {
+            latch.await(WAIT, TimeUnit.MILLISECONDS);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        profile = getCached(key);
+        return profile != null ? profile : offline(clean(name));
+    }
+
+    private static String clean(String name)
+    {
+        return name.replaceAll("[^ -~]", "");
+    }
+
+    private static String key(String name)
+    {
+        return clean(name).toLowerCase();
+    }
+
+    private static GameProfile offline(String name)
+    {
+        return new GameProfile(EntityPlayer.func_146094_a(new GameProfile(null, name)), name);
+    }
+
+    private GameProfile getCached(String key)
+    {
+        synchronized (cache)
+        {
+            Entry entry = cache.get(key);
+            if (entry == null) return null;
+            if (entry.expires < System.currentTimeMillis())
+            {
+                cache.remove(key);
+                return null;
+            }
+            return entry.profile;
+        }
+    }
+
+    private void put(String key, GameProfile profile, long ttl)
+    {
+        synchronized (cache)
+        {
+            cache.put(key, new Entry(profile, System.currentTimeMillis() + ttl));
+        }
+    }
+
+    private CountDownLatch request(String key, String name)
+    {
+        CountDownLatch latch = new CountDownLatch(1);
+        CountDownLatch old = pending.putIfAbsent(key, latch);
+        if (old != null) return old;
+        start();
+        queue.add(name);
+        return latch;
+    }
+
+    private synchronized void start()
+    {
+        if (thread != null) return;
+        thread = new Thread(this, "P2S profile resolver");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void run()
+    {
+        ArrayList<String> batch = new ArrayList<>(MAX_BATCH);
+        while (true)
+        {
+            try
+            {
+                batch.add(queue.take());
+                queue.drainTo(batch, MAX_BATCH - 1);
+                resolve(batch);
+            }
+            catch (InterruptedException e)
+            {
+                return;
+            }
+            catch (Exception e)
+            {
+                Pay2Spawn.getLogger().warn("Error looking up profiles for " + batch);
+                e.printStackTrace();
+            }
+            finally
+            {
+                for (String name : batch)
+                {
+                    String key = key(name);
+                    if (getCached(key) == null) put(key, offline(name), OFFLINE_TTL);
+                    CountDownLatch latch = pending.remove(key);
+                    if (latch != null) latch.countDown();
+                }
+                if (!batch.isEmpty()) save();
+                batch.clear();
+            }
+        }
+    }
+
+    private void resolve(ArrayList<String> batch)
+    {
+        if (profileRepo == null)
+        {
+            profileRepo = new YggdrasilAuthenticationService(Minecraft.getMinecraft().getProxy(), String.format("%s_%s", NAME, UUID.randomUUID())).createProfileRepository();
+        }
+        profileRepo.findProfilesByNames(batch.toArray(new String[batch.size()]), Agent.MINECRAFT, new ProfileLookupCallback()
+        {
+            @Override
+            public void onProfileLookupSucceeded(GameProfile profile)
+            {
+                put(key(profile.getName()), profile, TTL);
+            }
+
+            @Override
+            public void onProfileLookupFailed(GameProfile profile, Exception exception)
+            {
+
+            }
+        });
+    }
+
+    private void load()
+    {
+        File file = new File(Pay2Spawn.getFolder(), FILENAME);
+        if (!file.exists()) return;
+        try
+        {
+            long now = System.currentTimeMillis();
+            JsonObject root = JSON_PARSER.parse(FileUtils.readFileToString(file, "UTF-8")).getAsJsonObject();
+            synchronized (cache)
+            {
+                for (Map.Entry<String, JsonElement> element : root.entrySet())
+                {
+                    JsonObject object = element.getValue().getAsJsonObject();
+                    long expires = object.get("expires").getAsLong();
+                    if (expires < now) continue;
+                    GameProfile profile = new GameProfile(UUID.fromString(object.get("id").getAsString()), object.get("name").getAsString());
+                    cache.put(element.getKey(), new Entry(profile, expires));
+                }
+            }
+        }
+        catch (Exception e)
+        {
+            Pay2Spawn.getLogger().warn("Could not read " + FILENAME + ", profiles will be looked up again.");
+            e.printStackTrace();
+        }
+    }
+
+    private void save()
+    {
+        JsonObject root = new JsonObject();
+        synchronized (cache)
+        {
+            for (Map.Entry<String, Entry> entry : cache.entrySet())
+            {
+                JsonObject object = new JsonObject();
+                object.addProperty("name", entry.getValue().profile.getName());
+                object.addProperty("id", entry.getValue().profile.getId().toString());
+                object.addProperty("expires", entry.getValue().expires);
+                root.add(entry.getKey(), object);
+            }
+        }
+        try
+        {
+            File tmp = new File(Pay2Spawn.getFolder(), FILENAME + ".tmp");
+            FileUtils.writeStringToFile(tmp, GSON_NOPP.toJson(root), "UTF-8");
+            File file = new File(Pay2Spawn.getFolder(), FILENAME);
+            if (!tmp.renameTo(file))
+            {
+                FileUtils.copyFile(tmp, file);
+                FileUtils.deleteQuietly(tmp);
+            }
+        }
+        catch (IOException e)
+        {
+            Pay2Spawn.getLogger().warn("Could not save " + FILENAME);
+            e.printStackTrace();
+        }
+    }
+
+    private static final class Entry
+    {
+        final GameProfile profile;
+        final long        expires;
+
+        Entry(GameProfile profile, long expires)
+        {
+            this.profile = profile;
+            this.expires = expires;
+        }
+    }
+}
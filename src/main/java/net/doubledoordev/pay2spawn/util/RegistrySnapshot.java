@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2014, DoubleDoorDevelopment
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ *
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ *  Neither the name of the project nor the names of its
+ *   contributors may be used to endorse or promote products derived from
+ *   this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.doubledoordev.pay2spawn.util;
+
+import net.minecraft.block.Block;
+import net.minecraft.entity.EntityList;
+import net.minecraft.item.Item;
+
+import java.util.ArrayList;
+
+import static net.doubledoordev.pay2spawn.util.Constants.RANDOM;
+
+/**
+ * Immutable arrays of the item, block and entity registries, so picking a random one is a single index.
+ * Built after post init, only rebuilt if the size of a registry changes.
+ * Holds objects, not ids, so id remapping when joining a world doesn't matter.
+ *
+ * @author Dries007
+ */
+public class RegistrySnapshot
+{
+    private static volatile RegistrySnapshot instance;
+
+    /**
+     * Every item, then the item of every block. Blocks without item are skipped.
+     */
+    private final Item[]   items;
+    private final String[] entities;
+    private final int      itemCount, blockCount, entityCount;
+
+    private RegistrySnapshot(int itemCount, int blockCount, int entityCount)
+    {
+        this.itemCount = itemCount;
+        this.blockCount = blockCount;
+        this.entityCount = entityCount;
+
+        ArrayList<Item> items = new ArrayList<>(itemCount + blockCount);
+        for (Object name : Item.itemRegistry.getKeys())
+        {
+            Item item = (Item) Item.itemRegistry.getObject(name);
+            if (item != null) items.add(item);
+        }
+        for (Object name : Block.blockRegistry.getKeys())
+        {
+            Item item = Item.getItemFromBlock(Block.getBlockFromName(name.toString()));
+            if (item != null) items.add(item);
+        }
+        this.items = items.toArray(new Item[items.size()]);
+
+        ArrayList<String> entities = new ArrayList<>(entityCount);
+        for (Object id : EntityList.entityEggs.keySet())
+        {
+            String name = EntityList.getStringFromID((Integer) id);
+            if (name != null) entities.add(name);
+        }
+        this.entities = entities.toArray(new String[entities.size()]);
+    }
+
+    /**
+     * @return the current snapshot, rebuilt first if a registry changed
+     */
+    public static RegistrySnapshot get()
+    {
+        RegistrySnapshot snapshot = instance;
+        int itemCount = Item.itemRegistry.getKeys().size();
+        int blockCount = Block.blockRegistry.getKeys().size();
+        int entityCount = EntityList.entityEggs.size();
+        if (snapshot == null || snapshot.itemCount != itemCount || snapshot.blockCount != blockCount || snapshot.entityCount != entityCount)
+        {
+            snapshot = new RegistrySnapshot(itemCount, blockCount, entityCount);
+            instance = snapshot;
+        }
+        return snapshot;
+    }
+
+    /**
+     * @return null if there are no items at all
+     */
+    public Item randomItem()
+    {
+        return items.length == 0 ? null : items[RANDOM.nextInt(items.length)];
+    }
+
+    /**
+     * @return the name of an entity with a spawn egg, null if there are none
+     */
+    public String randomEntity()
+    {
+        return entities.length == 0 ? null : entities[RANDOM.nextInt(entities.length)];
+    }
+}
@@ -51,11 +51,12 @@ import static net.doubledoordev.pay2spawn.util.Constants.*;
  */
 public class Reward
 {
-    private String    message;
-    private String    name;
-    private Double    amount;
-    private JsonArray rewards;
-    private Integer   countdown;
+    private String           message;
+    private String           name;
+    private Double           amount;
+    private JsonArray        rewards;
+    private Integer          countdown;
+    private RewardTemplate[] templates;
 
     public Reward(JsonObject json)
     {
@@ -84,6 +85,7 @@ public class Reward
             Pay2Spawn.getLogger().warn(rewards.toString());
             throw e;
         }
+        templates = RewardTemplate.compile(rewards);
     }
 
     public Reward(String name, Double amount, JsonArray rewards)
@@ -91,6 +93,7 @@ public class Reward
         this.name = name;
         this.amount = amount;
         this.rewards = rewards;
+        this.templates = RewardTemplate.compile(rewards);
     }
 
     public String getName()
@@ -119,6 +122,14 @@ public class Reward
         return message == null ? "" : message;
     }
 
+    /**
+     * @return true if the message or the NBT uses $uuid, so the donor's profile is worth prefetching
+     */
+    public boolean usesProfile()
+    {
+        return getMessage().contains("$uuid") || rewards.toString().contains("$uuid");
+    }
+
     public String getTypes()
     {
         HashSet<String> types = new HashSet<>();
@@ -148,6 +159,14 @@ public class Reward
         return rewards;
     }
 
+    /**
+     * @return the precompiled NBT for each entry in #getRewards
+     */
+    public RewardTemplate[] getTemplates()
+    {
+        return templates;
+    }
+
     @Override
     public String toString()
     {
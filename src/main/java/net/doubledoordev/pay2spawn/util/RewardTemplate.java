@@ -0,0 +1,253 @@
+/*
+ * Copyright (c) 2014, DoubleDoorDevelopment
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ *
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ *  Neither the name of the project nor the names of its
+ *   contributors may be used to endorse or promote products derived from
+ *   this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.doubledoordev.pay2spawn.util;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import net.doubledoordev.pay2spawn.random.RandomExpression;
+import net.doubledoordev.pay2spawn.random.RandomRegistry;
+import net.minecraft.nbt.NBTBase;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagList;
+import net.minecraft.nbt.NBTTagString;
+
+import java.util.Map;
+
+import static net.doubledoordev.pay2spawn.util.Constants.*;
+
+/**
+ * One entry of a reward's "rewards" array, compiled once when the reward is loaded.
+ * Parts without variables or randoms are kept as ready made NBT and copied, the rest are slots that
+ * get formatted and randomised straight into NBT. Gives the same result as formatting the json and running it through JsonNBTHelper.
+ *
+ * @author Dries007
+ */
+public class RewardTemplate
+{
+    private final Node root;
+
+    private RewardTemplate(Node root)
+    {
+        this.root = root;
+    }
+
+    public static RewardTemplate compile(JsonObject object)
+    {
+        return new RewardTemplate(compileNode(object));
+    }
+
+    public static RewardTemplate[] compile(JsonArray array)
+    {
+        RewardTemplate[] templates = new RewardTemplate[array.size()];
+        for (int i = 0; i < templates.length; i++) templates[i] = compile(array.get(i).getAsJsonObject());
+        return templates;
+    }
+
+    /**
+     * @return a fresh compound, safe to modify
+     */
+    public NBTTagCompound render(Donation donation, Reward reward)
+    {
+        return (NBTTagCompound) root.render(donation, reward);
+    }
+
+    private static Node compileNode(JsonElement element)
+    {
+        if (element.isJsonObject())
+        {
+            CompoundNode node = new CompoundNode(element.getAsJsonObject().entrySet().size());
+            int i = 0;
+            for (Map.Entry<String, JsonElement> entry : element.getAsJsonObject().entrySet())
+            {
+                node.keys[i] = entry.getKey();
+                node.values[i++] = compileNode(entry.getValue());
+            }
+            return node.isConstant() ? new ConstantNode(node.render(null, null)) : node;
+        }
+        if (element.isJsonArray())
+        {
+            ListNode node = new ListNode(element.getAsJsonArray().size());
+            int i = 0;
+            for (JsonElement child : element.getAsJsonArray()) node.values[i++] = compileNode(child);
+            return node.isConstant() ? new ConstantNode(node.render(null, null)) : node;
+        }
+        if (element.isJsonPrimitive())
+        {
+            JsonPrimitive primitive = element.getAsJsonPrimitive();
+            String string = primitive.getAsString();
+            int id = JsonNBTHelper.getTypeId(string);
+            if (id != -1)
+            {
+                String value = string.replace(NBTTypes[id] + ":", "");
+                if (isStatic(id, value)) return new ConstantNode(JsonNBTHelper.parseTyped(id, value));
+                return new SlotNode(id, value);
+            }
+            if (primitive.isString() && string.indexOf('$') != -1) return new SlotNode(-1, string);
+        }
+        return new ConstantNode(JsonNBTHelper.parseJSON(element));
+    }
+
+    /**
+     * Every variable and random tag starts with a '$'. Item and block names in SHORT and INT fields are looked up
+     * in the registry when the reward fires, since the ids can be different per world.
+     */
+    private static boolean isStatic(int id, String value)
+    {
+        if (value.indexOf('$') != -1) return false;
+        if (id == SHORT || id == INT)
+        {
+            try
+            {
+                Integer.parseInt(value);
+            }
+            catch (NumberFormatException e)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static abstract class Node
+    {
+        abstract NBTBase render(Donation donation, Reward reward);
+
+        boolean isConstant()
+        {
+            return false;
+        }
+    }
+
+    private static class ConstantNode extends Node
+    {
+        final NBTBase nbt;
+
+        ConstantNode(NBTBase nbt)
+        {
+            this.nbt = nbt;
+        }
+
+        @Override
+        NBTBase render(Donation donation, Reward reward)
+        {
+            return nbt.copy();
+        }
+
+        @Override
+        boolean isConstant()
+        {
+            return true;
+        }
+    }
+
+    private static class SlotNode extends Node
+    {
+        final int              id;
+        final String           format;
+        /**
+         * Already parsed if there are no donation variables in the way
+         */
+        final RandomExpression expression;
+
+        /**
+         * @param id NBT type id, or -1 for a string without type
+         */
+        SlotNode(int id, String format)
+        {
+            this.id = id;
+            this.format = format;
+            this.expression = id != -1 && TextTemplate.DONATION.get(format).isConstant() ? RandomRegistry.compile(id, format) : null;
+        }
+
+        @Override
+        NBTBase render(Donation donation, Reward reward)
+        {
+            if (expression != null) return JsonNBTHelper.parseTyped(id, RandomRegistry.solveRandom(expression));
+            String value = Helper.formatText(format, donation, reward);
+            if (id == -1) return new NBTTagString(value);
+            return JsonNBTHelper.parseTyped(id, RandomRegistry.solveRandom(id, value));
+        }
+    }
+
+    private static class CompoundNode extends Node
+    {
+        final String[] keys;
+        final Node[]   values;
+
+        CompoundNode(int size)
+        {
+            keys = new String[size];
+            values = new Node[size];
+        }
+
+        @Override
+        NBTBase render(Donation donation, Reward reward)
+        {
+            NBTTagCompound compound = new NBTTagCompound();
+            for (int i = 0; i < keys.length; i++) compound.setTag(keys[i], values[i].render(donation, reward));
+            return compound;
+        }
+
+        @Override
+        boolean isConstant()
+        {
+            for (Node value : values) if (!value.isConstant()) return false;
+            return true;
+        }
+    }
+
+    private static class ListNode extends Node
+    {
+        final Node[] values;
+
+        ListNode(int size)
+        {
+            values = new Node[size];
+        }
+
+        @Override
+        NBTBase render(Donation donation, Reward reward)
+        {
+            NBTTagList list = new NBTTagList();
+            for (Node value : values) list.appendTag(value.render(donation, reward));
+            return list;
+        }
+
+        @Override
+        boolean isConstant()
+        {
+            for (Node value : values) if (!value.isConstant()) return false;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2014, DoubleDoorDevelopment
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ *
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ *  Neither the name of the project nor the names of its
+ *   contributors may be used to endorse or promote products derived from
+ *   this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.doubledoordev.pay2spawn.util;
+
+import com.google.common.collect.Multimap;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Set;
+
+import static net.doubledoordev.pay2spawn.util.Constants.RANDOM;
+
+/**
+ * Immutable lookup table for reward tiers.
+ * Built once per RewardsDB, so a reload swaps the whole index at once and readers never need to lock.
+ *
+ * @author Dries007
+ * @see net.doubledoordev.pay2spawn.util.RewardsDB#process(Donation, boolean)
+ */
+public final class RewardTierIndex
+{
+    public static final RewardTierIndex EMPTY = new RewardTierIndex(new double[0], new Reward[0][], null, null);
+
+    private final double[]   keys;
+    private final Reward[][] buckets;
+    private final Reward[]   always;
+    private final Reward[]   zero;
+
+    private RewardTierIndex(double[] keys, Reward[][] buckets, Reward[] always, Reward[] zero)
+    {
+        this.keys = keys;
+        this.buckets = buckets;
+        this.always = always;
+        this.zero = zero;
+    }
+
+    public static RewardTierIndex build(Multimap<Double, Reward> map)
+    {
+        Set<Double> keySet = map.keySet();
+        double[] keys = new double[keySet.size()];
+        int i = 0;
+        for (double key : keySet) keys[i++] = key;
+        Arrays.sort(keys);
+
+        Reward[][] buckets = new Reward[keys.length][];
+        Reward[] always = null;
+        Reward[] zero = null;
+        for (i = 0; i < keys.length; i++)
+        {
+            Collection<Reward> rewards = map.get(keys[i]);
+            buckets[i] = rewards.toArray(new Reward[rewards.size()]);
+            if (keys[i] == -1D) always = buckets[i];
+            else if (keys[i] == 0D) zero = buckets[i];
+        }
+        return new RewardTierIndex(keys, buckets, always, zero);
+    }
+
+    /**
+     * Picks a random reward from the highest tier the amount reaches.
+     * An exact match wins, then the highest positive tier below the amount, then the 0 tier.
+     *
+     * @param amount the (sale adjusted) donation amount
+     * @return the reward or null if no tier matches
+     */
+    public Reward pick(double amount)
+    {
+        int i = Arrays.binarySearch(keys, amount);
+        if (i >= 0) return pick(buckets[i]);
+        i = -i - 2; // insertion point - 1 is the floor
+        if (i >= 0 && keys[i] > 0) return pick(buckets[i]);
+        return pick(zero);
+    }
+
+    /**
+     * -1 will always spawn
+     *
+     * @return a random reward from the -1 tier or null if there is none
+     */
+    public Reward pickAlways()
+    {
+        return pick(always);
+    }
+
+    public int size()
+    {
+        return keys.length;
+    }
+
+    private static Reward pick(Reward[] bucket)
+    {
+        if (bucket == null || bucket.length == 0) return null;
+        if (bucket.length == 1) return bucket[0];
+        return bucket[RANDOM.nextInt(bucket.length)];
+    }
+}
@@ -41,8 +41,8 @@ import net.doubledoordev.pay2spawn.types.TypeRegistry;
 
 import java.io.*;
 import java.util.Collection;
-import java.util.LinkedList;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import static net.doubledoordev.pay2spawn.util.Constants.GSON;
 import static net.doubledoordev.pay2spawn.util.Constants.JSON_PARSER;
@@ -55,8 +55,10 @@ import static net.doubledoordev.pay2spawn.util.Constants.JSON_PARSER;
  */
 public class RewardsDB
 {
-    public final  LinkedList<Sale>             saleList = new LinkedList<>();
+    public final  ConcurrentLinkedQueue<Sale>  saleList = new ConcurrentLinkedQueue<>();
     private final HashMultimap<Double, Reward> map      = HashMultimap.create();
+    private final RewardTierIndex index;
+    private final boolean         usesProfiles;
     public boolean editable;
 
     public RewardsDB(String input)
@@ -69,6 +71,8 @@ public class RewardsDB
             Reward reward = new Reward(element.getAsJsonObject());
             map.put(reward.getAmount(), reward);
         }
+        index = RewardTierIndex.build(map);
+        usesProfiles = usesProfiles(map.values());
     }
 
     public RewardsDB(File file)
@@ -129,10 +133,19 @@ public class RewardsDB
         {
             e.printStackTrace();
         }
+        index = RewardTierIndex.build(map);
+        usesProfiles = usesProfiles(map.values());
     }
 
-    public synchronized void process(Donation donation, boolean msg)
+    /**
+     * Only called from the donation pipeline thread.
+     *
+     * @see net.doubledoordev.pay2spawn.checkers.DonationPipeline
+     */
+    public void process(Donation donation, boolean msg)
     {
+        if (usesProfiles) ProfileResolver.INSTANCE.prefetch(donation.username);
+
         double amount = donation.amount; // Keep original value for stats and display purposes.
 
         Sale sale = getLastSale();
@@ -140,19 +153,13 @@ public class RewardsDB
 
         Pay2Spawn.getLogger().info("Donation + sale = " + amount);
 
-        double highestmatch = 0d;
-        Reward reward = null;
-        if (map.containsKey(amount)) reward = Helper.getRandomFromSet(map.get(amount));
-        else
-        {
-            for (double key : map.keySet()) if (key < amount && highestmatch < key) highestmatch = key;
-
-            if (map.containsKey(highestmatch)) reward = Helper.getRandomFromSet(map.get(highestmatch));
-        }
+        Reward reward = index.pick(amount);
+        Tracing.record(Tracing.Stage.MATCHED, null, donation.created);
 
         if (reward != null)
         {
             Statistics.handleSpawn(reward.getName());
+            Analytics.INSTANCE.record(Analytics.Kind.REWARD, reward.getName(), donation.amount, 0);
             ClientTickHandler.INSTANCE.donationTrainEntry.resetTimeout();
             reward.addToCountdown(donation, true, null);
         }
@@ -160,14 +167,18 @@ public class RewardsDB
         /**
          * -1 will always spawn
          */
-        if (map.containsKey(-1D))
-        {
-            Helper.getRandomFromSet(map.get(-1D)).addToCountdown(donation, false, reward);
-        }
+        Reward always = index.pickAlways();
+        if (always != null) always.addToCountdown(donation, false, reward);
 
         if (reward != null) Pay2Spawn.getSnw().sendToServer(new MessageMessage(reward, donation));
     }
 
+    private static boolean usesProfiles(Collection<Reward> rewards)
+    {
+        for (Reward reward : rewards) if (reward.usesProfile()) return true;
+        return false;
+    }
+
     public Set<Double> getAmounts()
     {
         return map.keySet();
@@ -178,6 +189,11 @@ public class RewardsDB
         return map.values();
     }
 
+    public RewardTierIndex getIndex()
+    {
+        return index;
+    }
+
     public void addSale(int time, int amount)
     {
         saleList.add(new Sale(time, amount));
@@ -185,23 +201,20 @@ public class RewardsDB
 
     public Sale getLastSale()
     {
-        Sale sale = null;
-        synchronized (saleList)
+        Sale sale;
+        while ((sale = saleList.peek()) != null)
         {
-            while (!saleList.isEmpty() && sale == null)
-            {
-                if (!saleList.getFirst().isExpired()) sale = saleList.getFirst();
-                else saleList.remove();
-            }
+            if (!sale.isExpired()) return sale;
+            saleList.remove(sale);
         }
-        return sale;
+        return null;
     }
 
     public static class Sale
     {
-        public final int  amount;
-        public       long time;
-        private boolean activated = false;
+        public final    int  amount;
+        public volatile long time;
+        private volatile boolean activated = false;
 
         public Sale(int time, int amount)
         {
@@ -211,12 +224,18 @@ public class RewardsDB
 
         public boolean isExpired()
         {
-            if (!activated)
-            {
-                this.activated = true;
-                this.time += System.currentTimeMillis();
-            }
+            if (!activated) activate();
             return time - System.currentTimeMillis() < 0;
         }
+
+        /**
+         * Only taken once per sale, every later check is a plain volatile read.
+         */
+        private synchronized void activate()
+        {
+            if (activated) return;
+            this.time += System.currentTimeMillis();
+            this.activated = true;
+        }
     }
 }
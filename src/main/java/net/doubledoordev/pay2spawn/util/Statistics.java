@@ -41,28 +41,53 @@ import net.minecraft.nbt.NBTBase;
 import net.minecraft.nbt.NBTTagCompound;
 import net.minecraft.nbt.NBTTagInt;
 
-import java.io.File;
-import java.io.IOException;
-import java.util.Comparator;
-import java.util.HashMap;
+import java.io.*;
 import java.util.Map;
-import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * ALL OF THE STATISTICS
+ * <p/>
+ * Counting happens in memory, every event is also queued for the journal.
+ * A background thread appends the queue to the journal every second and, if anything changed,
+ * writes a full snapshot every SNAPSHOT_INTERVAL seconds, after which the journal starts over. On load the snapshot is read and the journal entries it doesn't contain yet are replayed.
  *
  * @author Dries007
  */
 public class Statistics
 {
-    private static File statisticsFile;
-    private static NBTTagCompound root = new NBTTagCompound();
+    public static final String FILENAME          = "Statistics.dat";
+    public static final String JOURNAL_FILENAME  = "Statistics.journal";
+    public static final int    SNAPSHOT_INTERVAL = 60;
 
-    private static HashMap<String, Integer> killsMap       = new HashMap<>();
-    private static TreeMap<String, Integer> sortedKillsMap = new TreeMap<>(new ValueComparator(killsMap));
+    private static final byte SPAWN   = 0;
+    private static final byte KILL    = 1;
+    private static final byte DONATED = 2;
 
-    private static HashMap<String, Integer> spawnsMap       = new HashMap<>();
-    private static TreeMap<String, Integer> sortedSpawnsMap = new TreeMap<>(new ValueComparator(spawnsMap));
+    private static File statisticsFile;
+    private static File journalFile;
+
+    private static final Tally kills  = new Tally();
+    private static final Tally spawns = new Tally();
+
+    private static final ConcurrentLinkedQueue<Event> events  = new ConcurrentLinkedQueue<>();
+    /**
+     * Held while touching the files, the class itself is only locked while touching the numbers
+     */
+    private static final Object                       IO_LOCK = new Object();
+    /**
+     * Every event gets the next number, the snapshot remembers the last one it contains
+     */
+    private static long seq;
+    private static long savedSeq = -1;
+    private static ScheduledExecutorService writer;
 
     private static StatisticsHudEntry    spawnsStatisticsHudEntry;
     private static TotalDonationHudEntry totalDonationHudEntry;
@@ -75,7 +100,11 @@ public class Statistics
     public static void addToDonationAmount(double amount)
     {
         MetricsHelper.totalMoney += amount;
-        totalDonationHudEntry.addToDonationamount(amount);
+        synchronized (Statistics.class)
+        {
+            totalDonationHudEntry.addToDonationamount(amount);
+            events.add(new Event(++seq, DONATED, null, amount));
+        }
     }
 
     public static void handleKill(NBTTagCompound data)
@@ -83,140 +112,307 @@ public class Statistics
         Pay2Spawn.getLogger().warn("Debug kill data:" + JsonNBTHelper.parseNBT(data).toString());
         String name = data.getString("Reward");
 
-        sortedKillsMap.clear();
-
-        Integer i = killsMap.get(name);
-        if (i == null) i = 0;
-        killsMap.put(name, i + 1);
-
-        sortedKillsMap.putAll(killsMap);
-
-        save();
+        synchronized (Statistics.class)
+        {
+            kills.increment(name, 1);
+            events.add(new Event(++seq, KILL, name, 0));
+        }
     }
 
     public static void handleSpawn(String name)
     {
-        sortedSpawnsMap.clear();
-        Integer i = spawnsMap.get(name);
-        if (i == null) i = 0;
-        spawnsMap.put(name, i + 1);
-
-        sortedSpawnsMap.putAll(spawnsMap);
-
-        update(sortedSpawnsMap, spawnsStatisticsHudEntry);
-
-        save();
+        synchronized (Statistics.class)
+        {
+            spawns.increment(name, 1);
+            events.add(new Event(++seq, SPAWN, name, 0));
+            update(spawns, spawnsStatisticsHudEntry);
+        }
     }
 
     public static void preInit() throws IOException
     {
-        statisticsFile = new File(Pay2Spawn.getFolder(), "Statistics.dat");
+        statisticsFile = new File(Pay2Spawn.getFolder(), FILENAME);
+        journalFile = new File(Pay2Spawn.getFolder(), JOURNAL_FILENAME);
+        double donated = 0;
         if (statisticsFile.exists())
         {
-            root = CompressedStreamTools.read(statisticsFile);
-            if (root.hasKey("kills"))
+            NBTTagCompound root = CompressedStreamTools.read(statisticsFile);
+            if (root.hasKey("kills")) load(root.getCompoundTag("kills"), kills);
+            if (root.hasKey("spawns")) load(root.getCompoundTag("spawns"), spawns);
+            if (root.hasKey("donated")) donated = root.getDouble("donated");
+            seq = root.getLong("seq");
+        }
+        donated += replayJournal();
+
+        spawnsStatisticsHudEntry = new StatisticsHudEntry("topSpawned", -1, 2, 5, "$amount x $name", "-- Top spawned rewards: --");
+        Hud.INSTANCE.set.add(spawnsStatisticsHudEntry);
+        update(spawns, spawnsStatisticsHudEntry);
+
+        totalDonationHudEntry = new TotalDonationHudEntry("totalDonation", 1, "Total amount donated: $$amount", donated);
+        Hud.INSTANCE.set.add(totalDonationHudEntry);
+
+        statusHudEntry = new StatusHudEntry("status", 2);
+        Hud.INSTANCE.set.add(statusHudEntry);
+
+        // Fold the replayed journal into a new snapshot before anything new happens
+        writeSnapshot();
+
+        writer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory()
+        {
+            @Override
+            public Thread newThread(Runnable r)
             {
-                for (Object tagName : root.getCompoundTag("kills").func_150296_c())
+                Thread thread = new Thread(r, "P2S statistics writer");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        writer.scheduleWithFixedDelay(new Runnable()
+        {
+            int count;
+
+            @Override
+            public void run()
+            {
+                try
                 {
-                    NBTBase tag = root.getCompoundTag("kills").getTag(tagName.toString());
-                    if (tag instanceof NBTTagInt)
+                    if (++count >= SNAPSHOT_INTERVAL)
                     {
-                        killsMap.put(tagName.toString(), ((NBTTagInt) tag).func_150287_d());
+                        count = 0;
+                        writeSnapshot();
                     }
+                    else appendJournal();
+                }
+                catch (Exception e)
+                {
+                    Pay2Spawn.getLogger().warn("Error writing the statistics.");
+                    e.printStackTrace();
                 }
-                sortedKillsMap.putAll(killsMap);
             }
+        }, 1, 1, TimeUnit.SECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread("P2S statistics flush")
+        {
+            @Override
+            public void run()
+            {
+                save();
+            }
+        });
+    }
+
+    private static void load(NBTTagCompound compound, Tally tally)
+    {
+        for (Object tagName : compound.func_150296_c())
+        {
+            NBTBase tag = compound.getTag(tagName.toString());
+            if (tag instanceof NBTTagInt) tally.increment(tagName.toString(), ((NBTTagInt) tag).func_150287_d());
+        }
+    }
 
-            if (root.hasKey("spawns"))
+    /**
+     * @return the donated amount from the journal
+     */
+    private static double replayJournal()
+    {
+        if (!journalFile.exists()) return 0;
+        double donated = 0;
+        int replayed = 0;
+        DataInputStream in = null;
+        try
+        {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(journalFile)));
+            while (true)
             {
-                for (Object tagName : root.getCompoundTag("spawns").func_150296_c())
+                long eventSeq = in.readLong();
+                byte type = in.readByte();
+                String name = type == DONATED ? null : in.readUTF();
+                double amount = type == DONATED ? in.readDouble() : 0;
+                if (eventSeq <= seq) continue; // Already in the snapshot
+                seq = eventSeq;
+                replayed++;
+                switch (type)
                 {
-                    NBTBase tag = root.getCompoundTag("spawns").getTag(tagName.toString());
-                    if (tag instanceof NBTTagInt)
-                    {
-                        spawnsMap.put(tagName.toString(), ((NBTTagInt) tag).func_150287_d());
-                    }
+                    case SPAWN:
+                        spawns.increment(name, 1);
+                        break;
+                    case KILL:
+                        kills.increment(name, 1);
+                        break;
+                    case DONATED:
+                        donated += amount;
+                        break;
                 }
-                sortedSpawnsMap.putAll(spawnsMap);
             }
         }
-
-        spawnsStatisticsHudEntry = new StatisticsHudEntry("topSpawned", -1, 2, 5, "$amount x $name", "-- Top spawned rewards: --");
-        Hud.INSTANCE.set.add(spawnsStatisticsHudEntry);
-        update(sortedSpawnsMap, spawnsStatisticsHudEntry);
-
-        totalDonationHudEntry = new TotalDonationHudEntry("totalDonation", 1, "Total amount donated: $$amount", root.hasKey("donated") ? root.getDouble("donated") : 0);
-        Hud.INSTANCE.set.add(totalDonationHudEntry);
-
-        statusHudEntry = new StatusHudEntry("status", 2);
-        Hud.INSTANCE.set.add(statusHudEntry);
+        catch (EOFException ignored)
+        {
+            // End of the journal, or a half written last entry
+        }
+        catch (IOException e)
+        {
+            Pay2Spawn.getLogger().warn("Error reading the statistics journal, some statistics may be lost.");
+            e.printStackTrace();
+        }
+        finally
+        {
+            if (in != null)
+            {
+                try
+                {
+                    in.close();
+                }
+                catch (IOException ignored)
+                {
+                }
+            }
+        }
+        if (replayed != 0) Pay2Spawn.getLogger().info("Replayed " + replayed + " statistics from the journal.");
+        return donated;
     }
 
-    private static void update(TreeMap<String, Integer> map, StatisticsHudEntry hudEntry)
+    private static void update(Tally tally, StatisticsHudEntry hudEntry)
     {
-        if (map == null || hudEntry == null) return;
+        if (hudEntry == null) return;
         int i = 0;
         hudEntry.strings.clear();
         if (!Strings.isNullOrEmpty(hudEntry.getHeader())) Helper.addWithEmptyLines(hudEntry.strings, hudEntry.getHeader());
-        for (Map.Entry<String, Integer> entry : map.entrySet())
+        for (Tally.Count count : tally.sorted)
         {
             if (i > hudEntry.getAmount()) break;
             i++;
 
-            String key = entry.getKey();
-            Integer value = entry.getValue();
-
-            hudEntry.strings.add(hudEntry.getFormat().replace("$name", key).replace("$amount", value.toString()));
+            hudEntry.strings.add(hudEntry.getFormat().replace("$name", count.name).replace("$amount", Integer.toString(count.value)));
         }
+        hudEntry.markChanged();
     }
 
+    /**
+     * Writes everything out now, on the calling thread
+     */
     public static void save()
     {
-        NBTTagCompound kills = new NBTTagCompound();
-        for (String name : killsMap.keySet())
+        if (statisticsFile == null) return;
+        try
         {
-            kills.setInteger(name, killsMap.get(name));
+            writeSnapshot();
         }
-        root.setTag("kills", kills);
-
-        NBTTagCompound spawns = new NBTTagCompound();
-        for (String name : spawnsMap.keySet())
+        catch (IOException e)
         {
-            spawns.setInteger(name, spawnsMap.get(name));
+            e.printStackTrace();
         }
-        root.setTag("spawns", spawns);
-        root.setDouble("donated", totalDonationHudEntry.getDonated());
+    }
 
-        try
+    private static void appendJournal() throws IOException
+    {
+        synchronized (IO_LOCK)
         {
-            CompressedStreamTools.write(root, statisticsFile);
+            if (events.isEmpty()) return;
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(journalFile, true)));
+            try
+            {
+                Event event;
+                while ((event = events.poll()) != null)
+                {
+                    out.writeLong(event.seq);
+                    out.writeByte(event.type);
+                    if (event.type == DONATED) out.writeDouble(event.amount);
+                    else out.writeUTF(event.name);
+                }
+            }
+            finally
+            {
+                out.close();
+            }
         }
-        catch (IOException e)
+    }
+
+    /**
+     * The numbers are copied with the class locked, so the snapshot and the sequence number match.
+     * Queued events are covered by the snapshot, so they are dropped instead of journaled.
+     * If the journal survives a crash right after this, its events are skipped on load by their sequence number.
+     */
+    private static void writeSnapshot() throws IOException
+    {
+        synchronized (IO_LOCK)
         {
-            e.printStackTrace();
+            NBTTagCompound root = new NBTTagCompound();
+            synchronized (Statistics.class)
+            {
+                root.setTag("kills", kills.toNBT());
+                root.setTag("spawns", spawns.toNBT());
+                root.setDouble("donated", totalDonationHudEntry == null ? 0 : totalDonationHudEntry.getDonated());
+                root.setLong("seq", seq);
+                events.clear();
+                if (savedSeq == seq) return;
+                savedSeq = seq;
+            }
+
+            CompressedStreamTools.safeWrite(root, statisticsFile);
+            //noinspection ResultOfMethodCallIgnored
+            journalFile.delete();
         }
     }
 
-    static class ValueComparator implements Comparator<String>
+    /**
+     * Counts per name, with a sorted view (highest first, then by name) that is updated per increment instead of rebuilt
+     */
+    static class Tally
     {
-        Map<String, Integer> base;
+        final ConcurrentHashMap<String, AtomicInteger> counts = new ConcurrentHashMap<>();
+        final TreeSet<Count>                           sorted = new TreeSet<>();
+
+        synchronized void increment(String name, int amount)
+        {
+            AtomicInteger count = counts.get(name);
+            if (count == null)
+            {
+                count = new AtomicInteger();
+                counts.put(name, count);
+            }
+            else sorted.remove(new Count(name, count.get()));
+            sorted.add(new Count(name, count.addAndGet(amount)));
+        }
 
-        public ValueComparator(Map<String, Integer> base)
+        NBTTagCompound toNBT()
         {
-            this.base = base;
+            NBTTagCompound compound = new NBTTagCompound();
+            for (Map.Entry<String, AtomicInteger> entry : counts.entrySet()) compound.setInteger(entry.getKey(), entry.getValue().get());
+            return compound;
         }
 
-        // Note: this comparator imposes orderings that are inconsistent with equals.
-        public int compare(String a, String b)
+        static class Count implements Comparable<Count>
         {
-            if (base.get(a) >= base.get(b))
+            final String name;
+            final int    value;
+
+            Count(String name, int value)
             {
-                return -1;
+                this.name = name;
+                this.value = value;
             }
-            else
+
+            @Override
+            public int compareTo(Count o)
             {
-                return 1;
-            } // returning 0 would merge keys
+                if (value != o.value) return value > o.value ? -1 : 1;
+                return name.compareTo(o.name);
+            }
+        }
+    }
+
+    private static class Event
+    {
+        final long   seq;
+        final byte   type;
+        final String name;
+        final double amount;
+
+        Event(long seq, byte type, String name, double amount)
+        {
+            this.seq = seq;
+            this.type = type;
+            this.name = name;
+            this.amount = amount;
         }
     }
 }
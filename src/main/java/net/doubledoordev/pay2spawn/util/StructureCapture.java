@@ -0,0 +1,255 @@
+/*
+ * Copyright (c) 2014, DoubleDoorDevelopment
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ *
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ *  Neither the name of the project nor the names of its
+ *   contributors may be used to endorse or promote products derived from
+ *   this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.doubledoordev.pay2spawn.util;
+
+import net.doubledoordev.pay2spawn.Pay2Spawn;
+import net.doubledoordev.pay2spawn.network.PartMessage;
+import net.doubledoordev.pay2spawn.types.StructureType;
+import net.minecraft.block.Block;
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.tileentity.TileEntity;
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import static net.doubledoordev.pay2spawn.types.StructureType.*;
+
+/**
+ * Reads the blocks of a structure import request from the world.
+ * The request is split per chunk on a worker thread, the reading is done on the server thread,
+ * {@link StructureType#blocksPerTick} positions per tick, straight from the chunk's block storage.
+ * Air is skipped, every tick the blocks found so far are sent back with the progress.
+ *
+ * @author Dries007
+ * @see net.doubledoordev.pay2spawn.network.StructureImportMessage
+ */
+public class StructureCapture implements Runnable
+{
+    public static final String DONE_KEY      = "done";
+    public static final String TOTAL_KEY     = "total";
+    /**
+     * Requests come from clients, bigger ones are refused before they are unpacked
+     */
+    public static final int    MAX_POSITIONS = 1 << 20;
+    /**
+     * Max horizontal distance between the player and any block of the request
+     */
+    public static final int    MAX_DISTANCE  = 256;
+
+    private final EntityPlayerMP      player;
+    private final World               world;
+    private final int                 offsetx, offsety, offsetz;
+    private final ArrayDeque<Section> todo = new ArrayDeque<>();
+    private       int                 total, done;
+
+    private StructureCapture(EntityPlayerMP player, NBTTagCompound request, int offsetx, int offsety, int offsetz)
+    {
+        this.player = player;
+        this.world = player.worldObj;
+        this.offsetx = offsetx;
+        this.offsety = offsety;
+        this.offsetz = offsetz;
+
+        final HashMap<Long, Section> sections = new HashMap<>();
+        StructureCodec.decode(request, new StructureCodec.IVisitor()
+        {
+            @Override
+            public void visit(int x, int y, int z, int palette)
+            {
+                if (y < 0 || y > 255) return;
+                long key = ((long) (x >> 4) << 32) | ((z >> 4) & 0xFFFFFFFFL);
+                Section section = sections.get(key);
+                if (section == null)
+                {
+                    section = new Section(x >> 4, z >> 4);
+                    sections.put(key, section);
+                    todo.add(section);
+                }
+                section.add(x, y, z);
+                total++;
+            }
+        });
+        for (Section section : todo) Arrays.sort(section.points, 0, section.size);
+    }
+
+    /**
+     * Thread safe, the request is unpacked on a worker thread, reading starts the tick after that.
+     * The offset is added to every position sent back.
+     */
+    public static void start(final EntityPlayerMP player, final NBTTagCompound request, final int offsetx, final int offsety, final int offsetz)
+    {
+        long count = StructureCodec.count(request);
+        if (count > MAX_POSITIONS)
+        {
+            Pay2Spawn.getLogger().warn(player.getCommandSenderName() + " tried to import " + (count == Long.MAX_VALUE ? "an invalid structure" : count + " blocks") + ", the limit is " + MAX_POSITIONS + ".");
+            return;
+        }
+        int x = request.getInteger("x"), z = request.getInteger("z");
+        int px = (int) Math.floor(player.posX), pz = (int) Math.floor(player.posZ);
+        if (Math.abs((long) x - px) > MAX_DISTANCE || Math.abs((long) z - pz) > MAX_DISTANCE || Math.abs((long) x + request.getInteger("sx") - 1 - px) > MAX_DISTANCE || Math.abs((long) z + request.getInteger("sz") - 1 - pz) > MAX_DISTANCE)
+        {
+            Pay2Spawn.getLogger().warn(player.getCommandSenderName() + " tried to import a structure more than " + MAX_DISTANCE + " blocks away.");
+            return;
+        }
+        BlockPlacer.INSTANCE.prepare(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                BlockPlacer.INSTANCE.runOnTick(new StructureCapture(player, request, offsetx, offsety, offsetz));
+            }
+        });
+    }
+
+    @Override
+    public void run()
+    {
+        if (!MinecraftServer.getServer().getConfigurationManager().playerEntityList.contains(player)) return;
+
+        StructureCodec.Encoder encoder = new StructureCodec.Encoder();
+        try
+        {
+            int budget = StructureType.blocksPerTick;
+            while (budget > 0 && !todo.isEmpty())
+            {
+                Section section = todo.peek();
+                budget = section.read(this, encoder, budget);
+                if (section.next == section.size) todo.poll();
+            }
+        }
+        catch (Exception e)
+        {
+            Pay2Spawn.getLogger().warn("Error reading a structure for " + player.getCommandSenderName() + ", the rest of it is skipped.");
+            e.printStackTrace();
+            todo.clear();
+            done = total;
+        }
+
+        NBTTagCompound reply = encoder.build();
+        reply.setInteger(DONE_KEY, done);
+        reply.setInteger(TOTAL_KEY, total);
+        PartMessage.sendTo(PartMessage.Kind.STRUCTURE_REPLY, reply, player);
+
+        if (!todo.isEmpty()) BlockPlacer.INSTANCE.runOnTick(this);
+    }
+
+    /**
+     * One chunk worth of positions, packed as y, z, x (8, 4, 4 bits) so sorting groups them per 16 high section
+     */
+    private static class Section
+    {
+        final int cx, cz;
+        int[] points = new int[64];
+        int size, next;
+
+        Section(int cx, int cz)
+        {
+            this.cx = cx;
+            this.cz = cz;
+        }
+
+        void add(int x, int y, int z)
+        {
+            if (size == points.length) points = Arrays.copyOf(points, size * 2);
+            points[size++] = (y << 8) | ((z & 15) << 4) | (x & 15);
+        }
+
+        int read(StructureCapture capture, StructureCodec.Encoder encoder, int budget)
+        {
+            World world = capture.world;
+            if (!world.getChunkProvider().chunkExists(cx, cz))
+            {
+                // Never load or generate chunks for an import, unloaded ones are skipped
+                capture.done += size - next;
+                next = size;
+                return budget;
+            }
+            Chunk chunk = world.getChunkFromChunkCoords(cx, cz);
+            ExtendedBlockStorage[] storage = chunk.getBlockStorageArray();
+            while (next < size && budget > 0)
+            {
+                budget--;
+                capture.done++;
+                int point = points[next++];
+                int lx = point & 15, lz = (point >> 4) & 15, y = point >> 8;
+
+                ExtendedBlockStorage section = storage[y >> 4];
+                if (section == null)
+                {
+                    // Whole section is air, skip all the points in it
+                    while (next < size && points[next] >> 12 == y >> 4)
+                    {
+                        next++;
+                        capture.done++;
+                    }
+                    continue;
+                }
+
+                int x = (cx << 4) + lx, z = (cz << 4) + lz;
+                Block block = section.getBlockByExtId(lx, y & 15, lz);
+                if (block.isAir(world, x, y, z)) continue;
+
+                NBTTagCompound compound = new NBTTagCompound();
+
+                // BlockID
+                compound.setInteger(BLOCKID_KEY, Block.getIdFromBlock(block));
+
+                // metaData
+                int meta = section.getExtBlockMetadata(lx, y & 15, lz);
+                if (meta != 0) compound.setInteger(META_KEY, meta);
+
+                // TileEntity
+                if (block.hasTileEntity(meta))
+                {
+                    TileEntity te = world.getTileEntity(x, y, z);
+                    if (te != null)
+                    {
+                        NBTTagCompound teNbt = new NBTTagCompound();
+                        te.writeToNBT(teNbt);
+                        teNbt.removeTag("x");
+                        teNbt.removeTag("y");
+                        teNbt.removeTag("z");
+                        compound.setTag(TEDATA_KEY, teNbt);
+                    }
+                }
+
+                encoder.add(x + capture.offsetx, y + capture.offsety, z + capture.offsetz, compound);
+            }
+            return budget;
+        }
+    }
+}
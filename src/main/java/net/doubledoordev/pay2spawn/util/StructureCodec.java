@@ -0,0 +1,239 @@
+/*
+ * Copyright (c) 2014, DoubleDoorDevelopment
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ *
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ *  Neither the name of the project nor the names of its
+ *   contributors may be used to endorse or promote products derived from
+ *   this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.doubledoordev.pay2spawn.util;
+
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagIntArray;
+import net.minecraft.nbt.NBTTagList;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+import static net.doubledoordev.pay2spawn.util.Constants.COMPOUND;
+
+/**
+ * Compact structure format, in the spirit of schematics.
+ * Every distinct block (id, meta and TE data) is stored once in a palette,
+ * the bounding box is walked x first, then z, then y and stored as (length, palette index + 1) runs.
+ * Index 0 means the position is not part of the structure.
+ *
+ * @author Dries007
+ */
+public class StructureCodec
+{
+    public static final String PALETTE_KEY = "palette";
+    public static final String RUNS_KEY    = "runs";
+
+    private StructureCodec()
+    {
+    }
+
+    public static NBTTagList getPalette(NBTTagCompound root)
+    {
+        return root.getTagList(PALETTE_KEY, COMPOUND);
+    }
+
+    /**
+     * Calls the visitor for every position that is part of the structure, in storage order
+     *
+     * @return the amount of positions visited
+     */
+    public static int decode(NBTTagCompound root, IVisitor visitor)
+    {
+        int ox = root.getInteger("x"), oy = root.getInteger("y"), oz = root.getInteger("z");
+        long sx = Math.max(1, root.getInteger("sx")), sz = Math.max(1, root.getInteger("sz"));
+        int[] runs = root.getIntArray(RUNS_KEY);
+        int count = 0;
+        long linear = 0;
+        for (int i = 0; i + 1 < runs.length; i += 2)
+        {
+            int length = runs[i], value = runs[i + 1];
+            if (value != 0)
+            {
+                for (long l = linear; l < linear + length; l++)
+                {
+                    long rest = l / sx;
+                    visitor.visit(ox + (int) (l % sx), oy + (int) (rest / sz), oz + (int) (rest % sz), value - 1);
+                    count++;
+                }
+            }
+            linear += length;
+        }
+        return count;
+    }
+
+    /**
+     * Counts the positions {@link #decode} would visit, without visiting them.
+     *
+     * @return the amount of positions, or {@link Long#MAX_VALUE} if the runs are invalid
+     */
+    public static long count(NBTTagCompound root)
+    {
+        int[] runs = root.getIntArray(RUNS_KEY);
+        long count = 0;
+        for (int i = 0; i + 1 < runs.length; i += 2)
+        {
+            if (runs[i] < 0) return Long.MAX_VALUE;
+            if (runs[i + 1] != 0) count += runs[i];
+        }
+        return count;
+    }
+
+    public interface IVisitor
+    {
+        void visit(int x, int y, int z, int palette);
+    }
+
+    /**
+     * Collects blocks in any order, {@link #build()} sorts them and writes the runs.
+     * Equal block compounds share a palette entry, so don't modify them after adding.
+     */
+    public static class Encoder
+    {
+        private static final int  INDEX_BITS = 24;
+        private static final long INDEX_MASK = (1L << INDEX_BITS) - 1;
+
+        private final HashMap<NBTTagCompound, Integer> lookup  = new HashMap<>();
+        private final NBTTagList                       palette = new NBTTagList();
+        private       int[]                            xs      = new int[256];
+        private       int[]                            ys      = new int[256];
+        private       int[]                            zs      = new int[256];
+        private       int[]                            values  = new int[256];
+        private       int                              size;
+        private       int                              minX    = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, minZ = Integer.MAX_VALUE;
+        private       int                              maxX    = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE, maxZ = Integer.MIN_VALUE;
+
+        public void add(int x, int y, int z, NBTTagCompound block)
+        {
+            if (size == INDEX_MASK) throw new IllegalStateException("Structure too big to encode.");
+            Integer value = lookup.get(block);
+            if (value == null)
+            {
+                value = palette.tagCount() + 1;
+                lookup.put(block, value);
+                palette.appendTag(block);
+            }
+            if (size == xs.length)
+            {
+                xs = Arrays.copyOf(xs, size * 2);
+                ys = Arrays.copyOf(ys, size * 2);
+                zs = Arrays.copyOf(zs, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            xs[size] = x;
+            ys[size] = y;
+            zs[size] = z;
+            values[size] = value;
+            size++;
+
+            minX = Math.min(minX, x);
+            minY = Math.min(minY, y);
+            minZ = Math.min(minZ, z);
+            maxX = Math.max(maxX, x);
+            maxY = Math.max(maxY, y);
+            maxZ = Math.max(maxZ, z);
+        }
+
+        public int size()
+        {
+            return size;
+        }
+
+        /**
+         * If a position was added more than once, the first one wins.
+         */
+        public NBTTagCompound build()
+        {
+            NBTTagCompound root = new NBTTagCompound();
+            root.setTag(PALETTE_KEY, palette);
+            if (size == 0)
+            {
+                root.setIntArray(RUNS_KEY, new int[0]);
+                return root;
+            }
+            long sx = maxX - minX + 1L, sz = maxZ - minZ + 1L;
+            if (sx * sz * (maxY - minY + 1L) >= 1L << (63 - INDEX_BITS)) throw new IllegalStateException("Structure bounding box too big to encode.");
+            root.setInteger("x", minX);
+            root.setInteger("y", minY);
+            root.setInteger("z", minZ);
+            root.setInteger("sx", (int) sx);
+            root.setInteger("sy", maxY - minY + 1);
+            root.setInteger("sz", (int) sz);
+
+            long[] keys = new long[size];
+            for (int i = 0; i < size; i++) keys[i] = (((ys[i] - minY) * sz + (zs[i] - minZ)) * sx + (xs[i] - minX)) << INDEX_BITS | i;
+            Arrays.sort(keys);
+
+            Runs runs = new Runs();
+            long next = 0;
+            for (long key : keys)
+            {
+                long linear = key >>> INDEX_BITS;
+                if (linear < next) continue;
+                runs.add(linear - next, 0);
+                runs.add(1, values[((int) (key & INDEX_MASK))]);
+                next = linear + 1;
+            }
+            root.setTag(RUNS_KEY, new NBTTagIntArray(runs.toArray()));
+            return root;
+        }
+    }
+
+    private static class Runs
+    {
+        int[] data = new int[64];
+        int   size;
+
+        void add(long length, int value)
+        {
+            while (length > 0)
+            {
+                if (size != 0 && data[size - 1] == value && data[size - 2] < Integer.MAX_VALUE)
+                {
+                    int extra = (int) Math.min(length, Integer.MAX_VALUE - data[size - 2]);
+                    data[size - 2] += extra;
+                    length -= extra;
+                    continue;
+                }
+                if (size == data.length) data = Arrays.copyOf(data, size * 2);
+                int part = (int) Math.min(length, Integer.MAX_VALUE);
+                data[size++] = part;
+                data[size++] = value;
+                length -= part;
+            }
+        }
+
+        int[] toArray()
+        {
+            return Arrays.copyOf(data, size);
+        }
+    }
+}
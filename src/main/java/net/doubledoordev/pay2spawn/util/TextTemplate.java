@@ -0,0 +1,227 @@
+/*
+ * Copyright (c) 2014, DoubleDoorDevelopment
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ *
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ *  Neither the name of the project nor the names of its
+ *   contributors may be used to endorse or promote products derived from
+ *   this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.doubledoordev.pay2spawn.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A format string split once into literal text and $variables, rendered in a single pass into a reused StringBuilder.
+ * Get them from a Variables set, it caches the compiled templates per format string.
+ * Values filled in are never scanned for variables again, unlike chained String.replace calls.
+ *
+ * @author Dries007
+ */
+public class TextTemplate
+{
+    /**
+     * @see Helper#formatText(String, Donation, Reward)
+     */
+    public static final Variables DONATION       = new Variables("$name", "$uuid", "$amount", "$note", "$streameruuid", "$streamer", "$reward_message", "$reward_name", "$reward_amount", "$reward_countdown");
+    public static final Variables COUNTDOWN      = new Variables("$name", "$time");
+    public static final Variables SERVER_MESSAGE = new Variables("$name", "$amount", "$note", "$streamer", "$reward_message", "$reward_name", "$reward_amount", "$reward_countdown");
+
+    private static final ThreadLocal<StringBuilder> BUILDER = new ThreadLocal<StringBuilder>()
+    {
+        @Override
+        protected StringBuilder initialValue()
+        {
+            return new StringBuilder(128);
+        }
+    };
+
+    private final String    format;
+    private final Variables variables;
+    /**
+     * literals.length == vars.length + 1, the text in between the variables
+     */
+    private final String[]  literals;
+    private final int[]     vars;
+    private final long      used;
+
+    private TextTemplate(String format, Variables variables, String[] literals, int[] vars)
+    {
+        this.format = format;
+        this.variables = variables;
+        this.literals = literals;
+        this.vars = vars;
+        long used = 0;
+        for (int var : vars) used |= 1L << var;
+        this.used = used;
+    }
+
+    /**
+     * Callback that supplies the variable values.
+     * Must not render other templates, the StringBuilder is shared per thread.
+     */
+    public interface Resolver
+    {
+        /**
+         * @param out the output to append the value to
+         * @param var the index of the variable in its Variables
+         * @return false to leave the variable in the text as is
+         */
+        boolean append(StringBuilder out, int var);
+    }
+
+    public boolean uses(int var)
+    {
+        return (used & (1L << var)) != 0;
+    }
+
+    public boolean isConstant()
+    {
+        return vars.length == 0;
+    }
+
+    public String render(Resolver resolver)
+    {
+        if (vars.length == 0) return format;
+        StringBuilder sb = BUILDER.get();
+        sb.setLength(0);
+        for (int i = 0; i < vars.length; i++)
+        {
+            sb.append(literals[i]);
+            int mark = sb.length();
+            if (!resolver.append(sb, vars[i]))
+            {
+                sb.setLength(mark);
+                sb.append(variables.names[vars[i]]);
+            }
+        }
+        sb.append(literals[vars.length]);
+        return sb.toString();
+    }
+
+    /**
+     * @param values in the same order as the names in the Variables, null leaves the variable as is
+     */
+    public String render(final Object... values)
+    {
+        return render(new Resolver()
+        {
+            @Override
+            public boolean append(StringBuilder out, int var)
+            {
+                if (var >= values.length || values[var] == null) return false;
+                out.append(values[var]);
+                return true;
+            }
+        });
+    }
+
+    @Override
+    public String toString()
+    {
+        return format;
+    }
+
+    /**
+     * A set of variable names, and the cache of templates compiled against it.
+     */
+    public static class Variables
+    {
+        private static final int MAX_CACHED = 1024;
+
+        private final String[]                                names;
+        /**
+         * Indexes into names, longest first so $streameruuid wins over $streamer
+         */
+        private final Integer[]                               byLength;
+        private final ConcurrentHashMap<String, TextTemplate> cache = new ConcurrentHashMap<>();
+
+        public Variables(final String... names)
+        {
+            if (names.length > 64) throw new IllegalArgumentException("Too many variables.");
+            this.names = names;
+            byLength = new Integer[names.length];
+            for (int i = 0; i < names.length; i++) byLength[i] = i;
+            Arrays.sort(byLength, new Comparator<Integer>()
+            {
+                @Override
+                public int compare(Integer o1, Integer o2)
+                {
+                    return names[o2].length() - names[o1].length();
+                }
+            });
+        }
+
+        public TextTemplate get(String format)
+        {
+            TextTemplate template = cache.get(format);
+            if (template == null)
+            {
+                if (cache.size() >= MAX_CACHED) cache.clear();
+                template = compile(format);
+                cache.put(format, template);
+            }
+            return template;
+        }
+
+        private TextTemplate compile(String format)
+        {
+            ArrayList<String> literals = new ArrayList<>();
+            ArrayList<Integer> vars = new ArrayList<>();
+            int start = 0;
+            int i = format.indexOf('$');
+            while (i != -1)
+            {
+                int match = -1;
+                for (int var : byLength)
+                {
+                    if (format.startsWith(names[var], i))
+                    {
+                        match = var;
+                        break;
+                    }
+                }
+                if (match == -1)
+                {
+                    i = format.indexOf('$', i + 1);
+                }
+                else
+                {
+                    literals.add(format.substring(start, i));
+                    vars.add(match);
+                    start = i + names[match].length();
+                    i = format.indexOf('$', start);
+                }
+            }
+            literals.add(format.substring(start));
+
+            int[] varArray = new int[vars.size()];
+            for (int j = 0; j < varArray.length; j++) varArray[j] = vars.get(j);
+            return new TextTemplate(format, this, literals.toArray(new String[literals.size()]), varArray);
+        }
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2014, DoubleDoorDevelopment
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ *
+ *  Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ *  Neither the name of the project nor the names of its
+ *   contributors may be used to endorse or promote products derived from
+ *   this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+ * CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+ * OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package net.doubledoordev.pay2spawn.util;
+
+import net.doubledoordev.pay2spawn.Pay2Spawn;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Follows donations from the checker to the spawn in the world.
+ * Every donation gets a trace ID and a System.nanoTime() stamp, every stage records the time since the stage before it,
+ * in one timer per stage and one per stage and reward type.
+ * <p/>
+ * nanoTime stamps only mean something inside one JVM, so the client sends {@link #JVM} along with the reward.
+ * On a dedicated server the network stage and the total can't be measured and are left out.
+ *
+ * @author Dries007
+ */
+public class Tracing
+{
+    /**
+     * Random ID for this JVM
+     */
+    public static final long JVM = new Random().nextLong();
+
+    public static final String TRACE_KEY   = "trace";
+    public static final String JVM_KEY     = "traceJvm";
+    public static final String CREATED_KEY = "traceCreated";
+    public static final String SENT_KEY    = "traceSent";
+
+    private static final AtomicLong                       NEXT     = new AtomicLong();
+    private static final ConcurrentHashMap<String, Timer> REGISTRY = new ConcurrentHashMap<>();
+    /**
+     * Log every finished trace
+     */
+    public static volatile boolean log;
+
+    private Tracing()
+    {
+    }
+
+    public enum Stage
+    {
+        /**
+         * From the checker making the donation to a reward being picked
+         */
+        MATCHED,
+        /**
+         * Waiting for the client tick to pick it up
+         */
+        QUEUED,
+        /**
+         * The countdown, until the reward is sent to the server
+         */
+        SENT,
+        /**
+         * The network, until the server has it
+         */
+        RECEIVED,
+        /**
+         * Spawning on the server
+         */
+        SPAWNED,
+        /**
+         * From the checker to spawned
+         */
+        TOTAL
+    }
+
+    public static long newTrace()
+    {
+        return NEXT.incrementAndGet();
+    }
+
+    /**
+     * Records the time since startNanos for the stage, and for the type if it isn't null
+     *
+     * @return the recorded time in ns
+     */
+    public static long record(Stage stage, String type, long startNanos)
+    {
+        return record(stage, type, startNanos, System.nanoTime());
+    }
+
+    public static long record(Stage stage, String type, long startNanos, long endNanos)
+    {
+        long nanos = endNanos - startNanos;
+        get(stage.name()).record(nanos);
+        if (type != null) get(stage.name() + "/" + type).record(nanos);
+        return nanos;
+    }
+
+    /**
+     * Only records for the type, when the stage itself is already recorded
+     */
+    public static void recordType(Stage stage, String type, long nanos)
+    {
+        get(stage.name() + "/" + type).record(nanos);
+    }
+
+    /**
+     * @return a sorted copy of the registry
+     */
+    public static Map<String, Timer> getTimers()
+    {
+        return new TreeMap<>(REGISTRY);
+    }
+
+    public static void reset()
+    {
+        REGISTRY.clear();
+    }
+
+    public static void logTrace(long trace, String type, long totalNanos)
+    {
+        if (log) Pay2Spawn.getLogger().info("Trace #" + trace + " (" + type + ") spawned " + (totalNanos / 1000000) + " ms after the donation came in.");
+    }
+
+    private static Timer get(String name)
+    {
+        Timer timer = REGISTRY.get(name);
+        if (timer == null)
+        {
+            Timer previous = REGISTRY.putIfAbsent(name, timer = new Timer());
+            if (previous != null) timer = previous;
+        }
+        return timer;
+    }
+
+    /**
+     * Histogram of times in ms, see {@link Analytics.Histogram}
+     */
+    public static class Timer
+    {
+        private final long[] buckets = new long[Analytics.Histogram.BUCKETS];
+        private long count, max;
+
+        synchronized void record(long nanos)
+        {
+            buckets[Analytics.Histogram.index(nanos / 1000000.0)]++;
+            count++;
+            max = Math.max(max, nanos);
+        }
+
+        public synchronized long getCount()
+        {
+            return count;
+        }
+
+        public synchronized double getMaxMs()
+        {
+            return max / 1000000.0;
+        }
+
+        public synchronized double getPercentileMs(double p)
+        {
+            return Analytics.Histogram.percentile(buckets, p);
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("%d, median %.1f ms, p95 %.1f ms, p99 %.1f ms, max %.1f ms", getCount(), getPercentileMs(50), getPercentileMs(95), getPercentileMs(99), getMaxMs());
+        }
+    }
+}
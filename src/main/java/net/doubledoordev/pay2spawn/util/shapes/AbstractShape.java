@@ -36,6 +36,7 @@ import net.minecraft.nbt.NBTTagCompound;
 
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 
 import static net.doubledoordev.pay2spawn.util.Constants.BYTE;
 import static net.doubledoordev.pay2spawn.util.Constants.NBTTypes;
@@ -58,9 +59,6 @@ public abstract class AbstractShape implements IShape
         typeMap.put(REPLACEABLEONLY_KEY, NBTTypes[BYTE]);
     }
 
-    public static final long RENDERTIMEOUT  = 1000;
-    protected           long tempPointsTime = 0L;
-    protected Collection<PointI> temppoints;
     PointI center = new PointI();
     boolean hollow, replaceableOnly;
 
@@ -140,17 +138,42 @@ public abstract class AbstractShape implements IShape
     }
 
     @Override
-    public void render(Tessellator tess)
+    public Collection<PointI> getPoints()
     {
-        if (temppoints == null || System.currentTimeMillis() - tempPointsTime > RENDERTIMEOUT)
+        final HashSet<PointI> points = new HashSet<>();
+        forEachPoint(new IPointVisitor()
         {
-            temppoints = getPoints();
-            tempPointsTime = System.currentTimeMillis();
-        }
-        for (PointI pointI : temppoints)
+            @Override
+            public void visit(int x, int y, int z)
+            {
+                points.add(new PointI(x, y, z));
+            }
+        });
+        return points;
+    }
+
+    @Override
+    public void render(final Tessellator tess)
+    {
+        forEachPoint(new IPointVisitor()
         {
-            Helper.renderPoint(pointI, tess);
-        }
+            @Override
+            public void visit(int x, int y, int z)
+            {
+                Helper.renderPoint(tess, x, y, z);
+            }
+        });
+    }
+
+    /**
+     * Largest i with i * i <= n, n >= 0
+     */
+    static int isqrt(int n)
+    {
+        int i = (int) Math.sqrt(n);
+        while (i * i > n) i--;
+        while ((i + 1) * (i + 1) <= n) i++;
+        return i;
     }
 
     @Override
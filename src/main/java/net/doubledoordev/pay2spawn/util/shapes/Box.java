@@ -35,9 +35,6 @@ import net.doubledoordev.pay2spawn.types.guis.StructureTypeGui;
 import net.doubledoordev.pay2spawn.types.guis.shapes.BoxGui;
 import net.minecraft.nbt.NBTTagCompound;
 
-import java.util.Collection;
-import java.util.HashSet;
-
 import static net.doubledoordev.pay2spawn.util.Constants.INT;
 import static net.doubledoordev.pay2spawn.util.Constants.NBTTypes;
 
@@ -128,28 +125,42 @@ public class Box extends AbstractShape
         return this;
     }
 
+    /**
+     * If hollow, the box of (x - 1, y - 1, z - 1) is left out, column by column.
+     */
     @Override
-    public Collection<PointI> getPoints()
+    public void forEachPoint(IPointVisitor visitor)
     {
-        HashSet<PointI> points = new HashSet<>();
-
         int absx = Math.abs(this.x);
         int absz = Math.abs(this.z);
         int absy = Math.abs(this.y);
+        int innerx = Math.abs(this.x - 1);
+        int innerz = Math.abs(this.z - 1);
+        int innery = Math.abs(this.y - 1);
         for (int x = -absx; x <= absx; x++)
         {
             for (int z = -absz; z <= absz; z++)
             {
-                for (int y = -absy; y <= absy; y++)
+                if (hollow && Math.abs(x) <= innerx && Math.abs(z) <= innerz)
+                {
+                    for (int y = innery + 1; y <= absy; y++)
+                    {
+                        visitor.visit(center.x + x, center.y + y, center.z + z);
+                        visitor.visit(center.x + x, center.y - y, center.z + z);
+                    }
+                }
+                else
                 {
-                    points.add(new PointI(center.x + x, center.y + y, center.z + z));
+                    for (int y = -absy; y <= absy; y++) visitor.visit(center.x + x, center.y + y, center.z + z);
                 }
             }
         }
+    }
 
-        if (hollow) points.removeAll(new Box(center, x - 1, y - 1, z - 1).getPoints());
-
-        return points;
+    @Override
+    public IShape copy()
+    {
+        return new Box((PointI) center.copy(), x, y, z).setHollow(hollow).setReplaceableOnly(replaceableOnly);
     }
 
     @Override
@@ -35,8 +35,7 @@ import net.doubledoordev.pay2spawn.types.guis.StructureTypeGui;
 import net.doubledoordev.pay2spawn.types.guis.shapes.CylinderGui;
 import net.minecraft.nbt.NBTTagCompound;
 
-import java.util.Collection;
-import java.util.HashSet;
+import java.util.BitSet;
 
 import static net.doubledoordev.pay2spawn.util.Constants.INT;
 import static net.doubledoordev.pay2spawn.util.Constants.NBTTypes;
@@ -108,10 +107,15 @@ public class Cylinder extends AbstractShape
         return this;
     }
 
+    /**
+     * The circle is drawn once into a (2 * radius + 1)^2 bitmap with the midpoint algorithm, then every set bit becomes a column.
+     */
     @Override
-    public Collection<PointI> getPoints()
+    public void forEachPoint(IPointVisitor visitor)
     {
-        HashSet<PointI> points = new HashSet<>();
+        if (radius < 0) return;
+        int size = 2 * radius + 1;
+        BitSet circle = new BitSet(size * size);
 
         int d = (5 - radius * 4) / 4;
         int x = 0;
@@ -119,33 +123,30 @@ public class Cylinder extends AbstractShape
 
         do
         {
-            for (int y = -height; y <= height; y++)
+            if (hollow)
             {
-                if (hollow)
+                set(circle, size, x, z);
+                set(circle, size, x, -z);
+                set(circle, size, -x, z);
+                set(circle, size, -x, -z);
+
+                set(circle, size, z, x);
+                set(circle, size, z, -x);
+                set(circle, size, -z, x);
+                set(circle, size, -z, -x);
+            }
+            else
+            {
+                for (int z2 = -z; z2 <= z; z2++)
                 {
-                    points.add(new PointI(center.x + x, center.y + y, center.z + z));
-                    points.add(new PointI(center.x + x, center.y + y, center.z - z));
-                    points.add(new PointI(center.x - x, center.y + y, center.z + z));
-                    points.add(new PointI(center.x - x, center.y + y, center.z - z));
-
-                    points.add(new PointI(center.x + z, center.y + y, center.z + x));
-                    points.add(new PointI(center.x + z, center.y + y, center.z - x));
-                    points.add(new PointI(center.x - z, center.y + y, center.z + x));
-                    points.add(new PointI(center.x - z, center.y + y, center.z - x));
+                    set(circle, size, x, z2);
+                    set(circle, size, -x, z2);
                 }
-                else
+
+                for (int x2 = -x; x2 <= x; x2++)
                 {
-                    for (int z2 = -z; z2 <= z; z2++)
-                    {
-                        points.add(new PointI(center.x + x, center.y + y, center.z + z2));
-                        points.add(new PointI(center.x - x, center.y + y, center.z + z2));
-                    }
-
-                    for (int x2 = -x; x2 <= x; x2++)
-                    {
-                        points.add(new PointI(center.x + z, center.y + y, center.z + x2));
-                        points.add(new PointI(center.x - z, center.y + y, center.z + x2));
-                    }
+                    set(circle, size, z, x2);
+                    set(circle, size, -z, x2);
                 }
             }
 
@@ -162,7 +163,23 @@ public class Cylinder extends AbstractShape
         }
         while (x <= z);
 
-        return points;
+        for (int i = circle.nextSetBit(0); i >= 0; i = circle.nextSetBit(i + 1))
+        {
+            int dx = i / size - radius;
+            int dz = i % size - radius;
+            for (int y = -height; y <= height; y++) visitor.visit(center.x + dx, center.y + y, center.z + dz);
+        }
+    }
+
+    private void set(BitSet circle, int size, int x, int z)
+    {
+        circle.set((x + radius) * size + z + radius);
+    }
+
+    @Override
+    public IShape copy()
+    {
+        return new Cylinder((PointI) center.copy(), radius, height).setHollow(hollow).setReplaceableOnly(replaceableOnly);
     }
 
     @Override
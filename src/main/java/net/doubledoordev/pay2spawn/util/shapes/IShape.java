@@ -52,6 +52,11 @@ public interface IShape
 
     Collection<PointI> getPoints();
 
+    /**
+     * Streams every point of the shape exactly once, in no particular order
+     */
+    void forEachPoint(IPointVisitor visitor);
+
     PointI getCenter();
 
     IShape setCenter(PointI pointI);
@@ -69,4 +74,9 @@ public interface IShape
     void render(Tessellator tess);
 
     IShape rotate(int baseRotation);
+
+    /**
+     * @return a new shape with the same values, sharing nothing with this one
+     */
+    IShape copy();
 }
@@ -35,9 +35,6 @@ import net.doubledoordev.pay2spawn.types.guis.StructureTypeGui;
 import net.doubledoordev.pay2spawn.types.guis.shapes.PillarGui;
 import net.minecraft.nbt.NBTTagCompound;
 
-import java.util.Collection;
-import java.util.HashSet;
-
 import static net.doubledoordev.pay2spawn.util.Constants.INT;
 import static net.doubledoordev.pay2spawn.util.Constants.NBTTypes;
 
@@ -91,14 +88,15 @@ public class Pillar extends AbstractShape
     }
 
     @Override
-    public Collection<PointI> getPoints()
+    public void forEachPoint(IPointVisitor visitor)
     {
-        HashSet<PointI> points = new HashSet<>();
-
-        for (int y = -this.height; y <= this.height; y++) points.add(new PointI(this.center.x, this.center.y + y, this.center.z));
-        if (this.height == 0) points.add(new PointI(this.center.x, this.center.y, this.center.z));
+        for (int y = -this.height; y <= this.height; y++) visitor.visit(this.center.x, this.center.y + y, this.center.z);
+    }
 
-        return points;
+    @Override
+    public IShape copy()
+    {
+        return new Pillar((PointI) center.copy(), height).setHollow(hollow).setReplaceableOnly(replaceableOnly);
     }
 
     @Override
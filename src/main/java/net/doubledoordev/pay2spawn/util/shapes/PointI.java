@@ -205,6 +205,12 @@ public class PointI implements IShape
         return Arrays.asList(this);
     }
 
+    @Override
+    public void forEachPoint(IPointVisitor visitor)
+    {
+        visitor.visit(x, y, z);
+    }
+
     @Override
     public PointI getCenter()
     {
@@ -299,8 +305,9 @@ public class PointI implements IShape
         return this;
     }
 
+    @Override
     public IShape copy()
     {
-        return new PointI(x, y, z);
+        return new PointI(x, y, z).setHollow(hollow).setReplaceableOnly(replaceableOnly);
     }
 }
@@ -43,6 +43,9 @@ import java.util.HashMap;
 public class Shapes
 {
     public static final String                  SHAPE_KEY = "shape";
+    /**
+     * Empty prototypes, only to be copied or to open a gui with. Never hand these out.
+     */
     public static final HashMap<String, IShape> MAP       = new HashMap<>();
     public static final ArrayList<String>       LIST      = new ArrayList<>();
 
@@ -61,9 +64,12 @@ public class Shapes
         MAP.put(shape.getClass().getSimpleName(), shape);
     }
 
+    /**
+     * Thread safe, every call gives a new shape
+     */
     public static IShape loadShape(NBTTagCompound compound)
     {
-        return MAP.get(compound.getString(SHAPE_KEY)).fromNBT(compound);
+        return MAP.get(compound.getString(SHAPE_KEY)).copy().fromNBT(compound);
     }
 
     public static NBTTagCompound addShapeType(NBTTagCompound shapeData, Class<? extends IShape> clazz)
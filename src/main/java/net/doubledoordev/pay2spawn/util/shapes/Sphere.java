@@ -35,9 +35,6 @@ import net.doubledoordev.pay2spawn.types.guis.StructureTypeGui;
 import net.doubledoordev.pay2spawn.types.guis.shapes.SphereGui;
 import net.minecraft.nbt.NBTTagCompound;
 
-import java.util.Collection;
-import java.util.HashSet;
-
 import static net.doubledoordev.pay2spawn.util.Constants.INT;
 import static net.doubledoordev.pay2spawn.util.Constants.NBTTypes;
 
@@ -90,26 +87,47 @@ public class Sphere extends AbstractShape
         return this;
     }
 
+    /**
+     * Same points as every p with center.distanceTo(p) < radius, minus the sphere of radius - 1 if hollow.
+     * Each column gets its y range from the radius, so the inside of a hollow sphere is never visited.
+     */
     @Override
-    public Collection<PointI> getPoints()
+    public void forEachPoint(IPointVisitor visitor)
     {
-        HashSet<PointI> points = new HashSet<>();
+        if (radius <= 0) return;
+        int r2 = radius * radius;
+        int inner = hollow ? radius - 1 : 0;
+        int inner2 = inner * inner;
 
         for (int x = -radius; x <= radius; x++)
         {
             for (int z = -radius; z <= radius; z++)
             {
-                for (int y = -radius; y <= radius; y++)
+                int rest = r2 - x * x - z * z - 1;
+                if (rest < 0) continue;
+                int top = isqrt(rest);
+                int innerRest = inner2 - x * x - z * z - 1;
+                if (inner > 0 && innerRest >= 0)
+                {
+                    int innerTop = isqrt(innerRest);
+                    for (int y = innerTop + 1; y <= top; y++)
+                    {
+                        visitor.visit(center.x + x, center.y + y, center.z + z);
+                        visitor.visit(center.x + x, center.y - y, center.z + z);
+                    }
+                }
+                else
                 {
-                    PointI p = new PointI(center.x + x, center.y + y, center.z + z);
-                    if (center.distanceTo(p) < radius) points.add(p);
+                    for (int y = -top; y <= top; y++) visitor.visit(center.x + x, center.y + y, center.z + z);
                 }
             }
         }
+    }
 
-        if (hollow) points.removeAll(new Sphere(center, radius - 1).getPoints());
-
-        return points;
+    @Override
+    public IShape copy()
+    {
+        return new Sphere((PointI) center.copy(), radius).setHollow(hollow).setReplaceableOnly(replaceableOnly);
     }
 
     @Override